@@ -61,6 +61,8 @@ android {
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_17
         targetCompatibility = JavaVersion.VERSION_17
+        // java.time on minSdk 24
+        isCoreLibraryDesugaringEnabled = true
     }
     kotlinOptions {
         jvmTarget = "17"
@@ -68,6 +70,10 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        // android.util.Log is a no-op in JVM tests instead of throwing
+        unitTests.isReturnDefaultValues = true
+    }
     
     // Customize APK output name
     applicationVariants.all {
@@ -99,7 +105,11 @@ dependencies {
     // Room Database
     implementation("androidx.room:room-runtime:2.6.1")
     implementation("androidx.room:room-ktx:2.6.1")
+    implementation("androidx.room:room-paging:2.6.1")
     ksp("androidx.room:room-compiler:2.6.1")
+
+    // Paging
+    implementation("androidx.paging:paging-runtime-ktx:3.2.1")
     
     // Navigation
     implementation("androidx.navigation:navigation-fragment-ktx:2.7.6")
@@ -108,8 +118,13 @@ dependencies {
     // RecyclerView
     implementation("androidx.recyclerview:recyclerview:1.3.2")
     
+    // java.time backport for API < 26
+    coreLibraryDesugaring("com.android.tools:desugar_jdk_libs:2.0.4")
+    
     // Testing
     testImplementation("junit:junit:4.13.2")
+    // Plain JDBC SQLite for query plan and trigger tests on the JVM
+    testImplementation("org.xerial:sqlite-jdbc:3.45.1.0")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 }
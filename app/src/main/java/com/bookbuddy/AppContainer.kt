@@ -0,0 +1,116 @@
+package com.bookbuddy
+
+import androidx.paging.PagingData
+import androidx.paging.cachedIn
+import com.bookbuddy.data.BookListItem
+import com.bookbuddy.data.BookDatabase
+import com.bookbuddy.data.Category
+import com.bookbuddy.data.DashboardStats
+import com.bookbuddy.data.QueueSnapshot
+import com.bookbuddy.data.QueueSnapshotStore
+import com.bookbuddy.repository.BookRepository
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.launch
+import java.io.File
+
+/**
+ * Application-wide data graph: one [BookRepository] and one hot copy of each Room Flow,
+ * shared by every screen. Each flow replays its latest snapshot to new collectors and keeps
+ * its Room query alive for [STOP_TIMEOUT_MS] after the last collector leaves, so switching
+ * tabs reuses the cached list instead of re-querying.
+ */
+class AppContainer(private val database: BookDatabase, snapshotFile: File) {
+    companion object {
+        private const val STOP_TIMEOUT_MS = 5_000L
+
+        // Enough rows to fill the first screen
+        private const val SNAPSHOT_SIZE = 20
+    }
+
+    val applicationScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+
+    val repository = BookRepository(database.bookDao(), database.categoryDao(), database.statsDao(), database.readingSessionDao())
+
+    private fun <T> Flow<T>.shared(): SharedFlow<T> =
+        shareIn(applicationScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), replay = 1)
+
+    val booksToRead: SharedFlow<List<BookListItem>> = repository.getBooksToRead().shared()
+    val dashboardStats: SharedFlow<DashboardStats> = repository.getDashboardStats().shared()
+    val booksInQueueCount: SharedFlow<Int> = repository.getBooksInQueueCount().shared()
+    val categories: SharedFlow<List<Category>> = repository.getAllCategories().shared()
+    val readingDays: SharedFlow<Map<Long, Int>> = repository.getReadingDays().shared()
+    val allAuthors: SharedFlow<List<String>> = repository.getAllAuthors().shared()
+    val allCategoriesForFilter: SharedFlow<List<String>> = repository.getAllCategoriesForFilter().shared()
+
+    val completedBooksPaged: Flow<PagingData<BookListItem>> = repository.getCompletedBooksPaged().cachedIn(applicationScope)
+
+    private val snapshotStore = QueueSnapshotStore(snapshotFile)
+
+    /**
+     * The queue as rendered in the previous session, loaded by [warmUp]; null until then or if
+     * there is none.
+     */
+    @Volatile
+    var queueSnapshot: QueueSnapshot? = null
+        private set
+
+    // Latest snapshot to persist; StateFlow keeps only the newest if writes fall behind
+    private val pendingSnapshot = MutableStateFlow<QueueSnapshot?>(null)
+    private var lastSnapshotBooks: List<BookListItem> = emptyList()
+
+    init {
+        // Initialize colors for existing categories that don't have colors, once per process
+        applicationScope.launch {
+            repository.initializeCategoryColors()
+        }
+        applicationScope.launch(Dispatchers.IO) {
+            pendingSnapshot.filterNotNull().collect { snapshotStore.write(it) }
+        }
+    }
+
+    /**
+     * Cold-start work started from Application.onCreate: loads the queue snapshot, then opens the
+     * database (running migrations and the open callback) and runs the first-screen queries on
+     * the IO dispatcher. Their results sit in the shared flows' replay caches, and the queries
+     * stay subscribed for [STOP_TIMEOUT_MS], so the first screen usually starts from warm data.
+     */
+    fun warmUp() {
+        applicationScope.launch(Dispatchers.IO) {
+            queueSnapshot = snapshotStore.read()
+            try {
+                database.openHelper.writableDatabase
+                launch { booksToRead.first() }
+                launch { categories.first() }
+                launch { readingDays.first() }
+                launch { dashboardStats.first() }
+            } catch (e: Exception) {
+                android.util.Log.e("BookBuddy", "Error warming up database", e)
+            }
+        }
+    }
+
+    /**
+     * Remembers the top of the rendered queue for the next cold start. Only written when it changed.
+     */
+    fun saveQueueSnapshot(books: List<BookListItem>) {
+        val top = books.take(SNAPSHOT_SIZE)
+        if (top == lastSnapshotBooks) return
+        lastSnapshotBooks = top
+        val topCategories = top.mapTo(HashSet()) { it.category }
+        val colors = categories.replayCache.firstOrNull().orEmpty()
+            .filter { it.name in topCategories }
+            .associate { it.name to it.colorHex }
+        val allDays = readingDays.replayCache.firstOrNull().orEmpty()
+        val days = top.mapNotNull { book -> allDays[book.id]?.let { book.id to it } }.toMap()
+        pendingSnapshot.value = QueueSnapshot(top, colors, days)
+    }
+}
@@ -21,6 +21,8 @@ class BookBuddyApplication : Application() {
             throw e
         }
     }
+
+    val container: AppContainer by lazy { AppContainer(database, java.io.File(filesDir, "queue_snapshot")) }
     
     override fun onCreate() {
         super.onCreate()
@@ -34,6 +36,9 @@ class BookBuddyApplication : Application() {
             // Call the original default handler
             defaultHandler?.uncaughtException(thread, exception)
         }
+
+        // Open the database and load the first screen's data in the background
+        container.warmUp()
     }
 }
 
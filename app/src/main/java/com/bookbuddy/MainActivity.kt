@@ -5,28 +5,30 @@ import android.content.Intent
 import android.net.Uri
 import android.os.Bundle
 import android.util.Log
+import android.view.View
 import android.widget.Toast
 import androidx.activity.result.contract.ActivityResultContracts
+import androidx.appcompat.app.AlertDialog
 import androidx.appcompat.app.AppCompatActivity
 import androidx.core.view.GravityCompat
 import androidx.drawerlayout.widget.DrawerLayout
 import androidx.lifecycle.ViewModelProvider
+import androidx.lifecycle.lifecycleScope
 import androidx.navigation.NavController
 import androidx.navigation.fragment.NavHostFragment
 import androidx.navigation.ui.AppBarConfiguration
 import androidx.navigation.ui.navigateUp
 import androidx.navigation.ui.setupActionBarWithNavController
 import androidx.navigation.ui.setupWithNavController
+import com.bookbuddy.data.ImportMode
 import com.bookbuddy.databinding.ActivityMainBinding
 import com.bookbuddy.ui.viewmodel.BookViewModel
 import com.bookbuddy.ui.viewmodel.BookViewModelFactory
-import com.bookbuddy.utils.CSVHelper
+import com.bookbuddy.ui.viewmodel.TransferProgress
 import com.google.android.material.bottomnavigation.BottomNavigationView
 import com.google.android.material.navigation.NavigationView
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
+import com.google.android.material.snackbar.Snackbar
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.withContext
 import java.text.SimpleDateFormat
 import java.util.*
 
@@ -62,6 +64,7 @@ class MainActivity : AppCompatActivity() {
 
             setupNavigation()
             setupDrawer()
+            observeTransfers()
         } catch (e: Exception) {
             Log.e("BookBuddy", "Error in MainActivity onCreate", e)
             e.printStackTrace()
@@ -134,22 +137,47 @@ class MainActivity : AppCompatActivity() {
     }
 
     private fun exportToCSV(uri: Uri) {
-        CoroutineScope(Dispatchers.IO).launch {
-            try {
-                val books = viewModel.getAllBooks()
-                withContext(Dispatchers.Main) {
-                    contentResolver.openOutputStream(uri)?.use { outputStream ->
-                        CSVHelper.exportBooksToCSV(books, outputStream)
-                        Toast.makeText(this@MainActivity, "Exported ${books.size} books successfully", Toast.LENGTH_SHORT).show()
-                    } ?: run {
-                        Toast.makeText(this@MainActivity, "Error exporting books", Toast.LENGTH_SHORT).show()
+        viewModel.exportBooks { contentResolver.openOutputStream(uri) }
+    }
+
+    /**
+     * Shows export/import progress in the bar above the bottom navigation, and their results as toasts.
+     */
+    private fun observeTransfers() {
+        var cancelBar: Snackbar? = null
+        lifecycleScope.launch {
+            viewModel.transferProgress.collect { progress ->
+                val indicator = binding.transferProgress
+                if (progress == null) {
+                    indicator.visibility = View.GONE
+                    cancelBar?.dismiss()
+                    cancelBar = null
+                } else {
+                    if (progress.kind == TransferProgress.Kind.IMPORT) {
+                        val text = "Importing… ${progress.done} books"
+                        cancelBar?.setText(text) ?: run {
+                            cancelBar = Snackbar.make(binding.root, text, Snackbar.LENGTH_INDEFINITE)
+                                .setAnchorView(binding.bottomNavigation)
+                                .setAction("Cancel") { viewModel.cancelTransfer() }
+                                .also { it.show() }
+                        }
                     }
+                    // The indicator may not switch to indeterminate while it is visible
+                    if (indicator.visibility != View.VISIBLE) {
+                        indicator.isIndeterminate = progress.total == 0
+                    }
+                    if (progress.total > 0) {
+                        indicator.isIndeterminate = false
+                        indicator.max = progress.total
+                        indicator.setProgressCompat(progress.done, true)
+                    }
+                    indicator.visibility = View.VISIBLE
                 }
-            } catch (e: Exception) {
-                Log.e("BookBuddy", "Error exporting CSV", e)
-                withContext(Dispatchers.Main) {
-                    Toast.makeText(this@MainActivity, "Error: ${e.message}", Toast.LENGTH_SHORT).show()
-                }
+            }
+        }
+        lifecycleScope.launch {
+            viewModel.transferMessages.collect { message ->
+                Toast.makeText(this@MainActivity, message, Toast.LENGTH_SHORT).show()
             }
         }
     }
@@ -163,29 +191,18 @@ class MainActivity : AppCompatActivity() {
     }
 
     private fun importFromCSV(uri: Uri) {
-        CoroutineScope(Dispatchers.IO).launch {
-            try {
-                val books = contentResolver.openInputStream(uri)?.use { inputStream ->
-                    CSVHelper.importBooksFromCSV(inputStream)
-                } ?: emptyList()
-
-                if (books.isNotEmpty()) {
-                    viewModel.importBooks(books)
-                    withContext(Dispatchers.Main) {
-                        Toast.makeText(this@MainActivity, "Imported ${books.size} books successfully", Toast.LENGTH_SHORT).show()
-                    }
-                } else {
-                    withContext(Dispatchers.Main) {
-                        Toast.makeText(this@MainActivity, "No books found in CSV file", Toast.LENGTH_SHORT).show()
-                    }
-                }
-            } catch (e: Exception) {
-                Log.e("BookBuddy", "Error importing CSV", e)
-                withContext(Dispatchers.Main) {
-                    Toast.makeText(this@MainActivity, "Error: ${e.message}", Toast.LENGTH_SHORT).show()
-                }
+        // Ask how to treat books that are already in the library
+        val modes = ImportMode.values()
+        var selected = modes.indexOf(ImportMode.SKIP)
+        AlertDialog.Builder(this)
+            .setTitle(R.string.import_duplicates_title)
+            .setSingleChoiceItems(R.array.import_modes, selected) { _, which -> selected = which }
+            .setPositiveButton(R.string.import_books) { dialog, _ ->
+                viewModel.importBooks(modes[selected]) { contentResolver.openInputStream(uri) }
+                dialog.dismiss()
             }
-        }
+            .setNegativeButton(R.string.cancel, null)
+            .show()
     }
 
     private fun setupNavigation() {
@@ -2,10 +2,19 @@ package com.bookbuddy.data
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
-import java.util.Date
 
-@Entity(tableName = "books")
+@Entity(
+    tableName = "books",
+    indices = [
+        Index(value = ["inQueue", "rankKey"]),  // reading queue, in order
+        Index(value = ["status", "endDate"]),   // completed history, books read this year
+        Index(value = ["status", "startDate"]), // currently reading
+        Index(value = ["category", "status"]),  // category filter
+        Index(value = ["naturalKey"])           // duplicate detection on import
+    ]
+)
 data class Book(
     @PrimaryKey(autoGenerate = true)
     val id: Long = 0,
@@ -23,21 +32,29 @@ data class Book(
     @ColumnInfo(name = "author5")
     val author5: String? = null,
     val category: String,
-    val ranking: Int,
+    val ranking: Int, // Queue position as of the last rebalance; the live order is rankKey
+    @ColumnInfo(name = "rankKey", defaultValue = "0")
+    val rankKey: Long = 0, // Sparse sort key for the queue, see RankKeys
     val hasBook: Boolean,
     @ColumnInfo(name = "status")
     val status: BookStatus,
     @ColumnInfo(name = "startDate")
-    val startDate: Date? = null,
+    val startDate: Long? = null, // Dates are epoch millis, the same INTEGER values DateConverters used to write
     @ColumnInfo(name = "endDate")
-    val endDate: Date? = null,
+    val endDate: Long? = null,
     @ColumnInfo(name = "createdAt")
-    val createdAt: Date = Date(),
+    val createdAt: Long = System.currentTimeMillis(),
     @ColumnInfo(name = "totalReadingDays")
-    val totalReadingDays: Int = 0,
+    val totalReadingDays: Int = 0, // Days of closed reading_sessions, kept equal to them by triggers
     @ColumnInfo(name = "currentReadingStartDate")
-    val currentReadingStartDate: Date? = null
+    val currentReadingStartDate: Long? = null,
+    @ColumnInfo(name = "naturalKey", defaultValue = "")
+    val naturalKey: String = "", // See NaturalKeys; set by the repository on every write
+    @ColumnInfo(name = "inQueue", defaultValue = "1")
+    val inQueue: Boolean = true // status != COMPLETED, kept in step by DatabaseTriggers.queueFlagTriggers
 ) {
+    fun withNaturalKey(): Book = copy(naturalKey = NaturalKeys.of(this))
+
     // Helper function to get all authors as a list
     fun getAllAuthors(): List<String> {
         return listOfNotNull(author1, author2, author3, author4, author5).filter { it.isNotBlank() }
@@ -54,10 +71,43 @@ data class Book(
     }
 }
 
-enum class BookStatus {
-    NOT_STARTED,
-    IN_PROGRESS,
-    ON_HOLD,
-    COMPLETED
+/**
+ * Reading status, stored as the small integer [code] (see [BookStatusCodes]).
+ * CSV files and the queue snapshot still use the enum names.
+ */
+enum class BookStatus(val code: Int) {
+    NOT_STARTED(BookStatusCodes.NOT_STARTED),
+    IN_PROGRESS(BookStatusCodes.IN_PROGRESS),
+    ON_HOLD(BookStatusCodes.ON_HOLD),
+    COMPLETED(BookStatusCodes.COMPLETED);
+
+    /**
+     * Statuses a book may move to this one from, checked by BookDao.transition in the UPDATE itself.
+     */
+    val allowedFrom: List<BookStatus>
+        get() = when (this) {
+            NOT_STARTED -> emptyList()
+            IN_PROGRESS -> listOf(NOT_STARTED, ON_HOLD)
+            ON_HOLD -> listOf(IN_PROGRESS)
+            COMPLETED -> listOf(NOT_STARTED, IN_PROGRESS, ON_HOLD)
+        }
+
+    companion object {
+        fun fromCode(code: Int): BookStatus? = entries.firstOrNull { it.code == code }
+    }
+}
+
+/**
+ * Stored values of [BookStatus], as constants so @Query strings can use them.
+ * Never renumber: the values are persisted.
+ */
+object BookStatusCodes {
+    const val NOT_STARTED = 0
+    const val IN_PROGRESS = 1
+    const val ON_HOLD = 2
+    const val COMPLETED = 3
+
+    // Every status that keeps a book in the reading queue
+    const val QUEUE = "($NOT_STARTED, $IN_PROGRESS, $ON_HOLD)"
 }
 
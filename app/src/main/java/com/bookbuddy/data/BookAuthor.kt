@@ -0,0 +1,29 @@
+package com.bookbuddy.data
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+
+/**
+ * One row per (book, author slot). Mirrors author1..author5 on [Book] so author lookups
+ * and filters can use an index instead of scanning five columns.
+ * Rows are maintained by the triggers in [DatabaseTriggers]; never write to this table directly.
+ */
+@Entity(
+    tableName = "book_authors",
+    primaryKeys = ["bookId", "position"],
+    indices = [
+        Index(value = ["name", "bookId"]),
+        Index(value = ["nameNormalized", "bookId"])
+    ]
+)
+data class BookAuthor(
+    @ColumnInfo(name = "bookId")
+    val bookId: Long,
+    @ColumnInfo(name = "position")
+    val position: Int, // 1..5, matches the authorN column it came from
+    @ColumnInfo(name = "name")
+    val name: String,
+    @ColumnInfo(name = "nameNormalized")
+    val nameNormalized: String // LOWER(TRIM(name)), used for case-insensitive matching
+)
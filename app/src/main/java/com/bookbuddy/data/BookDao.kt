@@ -1,89 +1,240 @@
 package com.bookbuddy.data
 
+import androidx.paging.PagingSource
 import androidx.room.*
+import androidx.sqlite.db.SupportSQLiteQuery
 import kotlinx.coroutines.flow.Flow
-import java.util.Date
 
+/**
+ * Queue queries filter on the trigger-maintained inQueue flag, so index_books_inQueue_rankKey
+ * serves both the WHERE and the ORDER BY rankKey without a sort step.
+ */
 @Dao
 interface BookDao {
-    @Query("SELECT * FROM books WHERE status != 'COMPLETED' ORDER BY ranking ASC")
-    fun getBooksToRead(): Flow<List<Book>>
+    // List screens read the BookListItem projection; the full Book is only loaded by id for editing
 
-    @Query("SELECT * FROM books WHERE status = 'COMPLETED' ORDER BY endDate DESC")
-    fun getCompletedBooks(): Flow<List<Book>>
+    @Query("${QueueSql.SELECT_QUEUE} ORDER BY rankKey ASC")
+    fun getBooksToRead(): Flow<List<BookListItem>>
 
-    @Query("SELECT * FROM books WHERE status = 'IN_PROGRESS' ORDER BY startDate DESC")
-    fun getInProgressBooks(): Flow<List<Book>>
+    @Query("SELECT ${BookListItem.COLUMNS} FROM books WHERE status = ${BookStatusCodes.COMPLETED} ORDER BY endDate DESC")
+    fun getCompletedBooksPaged(): PagingSource<Int, BookListItem>
 
-    @Query("""
-        SELECT * FROM books 
-        WHERE status != 'COMPLETED' 
-        AND (:author IS NULL OR :author = '' OR 
-             author1 = :author OR author2 = :author OR author3 = :author OR author4 = :author OR author5 = :author)
-        AND (:category IS NULL OR :category = '' OR category = :category)
-        AND (:titleSearch IS NULL OR :titleSearch = '' OR LOWER(name) LIKE '%' || LOWER(:titleSearch) || '%')
-    """)
-    suspend fun getBooksToReadFiltered(author: String?, category: String?, titleSearch: String?): List<Book>
+    /**
+     * Filtered and sorted queue; build [query] with BookQueueQuery.build.
+     */
+    @RawQuery(observedEntities = [Book::class, BookAuthor::class])
+    fun getBooksToReadFiltered(query: SupportSQLiteQuery): Flow<List<BookListItem>>
+
+    /**
+     * Queue books matching a search, unordered, to be ranked with FtsRank; build [query] with
+     * BookQueueQuery.buildSearch.
+     */
+    @RawQuery(observedEntities = [Book::class, BookAuthor::class, BookFts::class])
+    fun searchQueue(query: SupportSQLiteQuery): Flow<List<BookSearchHit>>
 
     @Query("SELECT * FROM books WHERE id = :id")
     suspend fun getBookById(id: Long): Book?
 
-    @Query("SELECT COUNT(*) FROM books WHERE status = 'COMPLETED'")
-    fun getTotalBooksRead(): Flow<Int>
-
-    @Query("SELECT COUNT(*) FROM books WHERE status = 'COMPLETED' AND endDate >= :startOfYear")
-    suspend fun getBooksReadThisYear(startOfYear: Long): Int
-
-    @Query("SELECT * FROM books WHERE status = 'COMPLETED' ORDER BY endDate DESC")
-    suspend fun getAllCompletedBooks(): List<Book>
+    /**
+     * Keyset page of the queue in order, after the row ([afterRankKey], [afterId]).
+     * Used by the export so no more than [limit] rows are held at a time.
+     */
+    @Query("""
+        SELECT * FROM books
+        WHERE ${QueueSql.IN_QUEUE}
+        AND (rankKey > :afterRankKey OR (rankKey = :afterRankKey AND id > :afterId))
+        ORDER BY rankKey ASC, id ASC
+        LIMIT :limit
+    """)
+    suspend fun getQueuePageAfter(afterRankKey: Long, afterId: Long, limit: Int): List<Book>
 
-    @Query("SELECT * FROM books ORDER BY createdAt DESC")
-    suspend fun getAllBooks(): List<Book>
+    /**
+     * Keyset page of completed books by id, after [afterId].
+     */
+    @Query("SELECT * FROM books WHERE status = ${BookStatusCodes.COMPLETED} AND id > :afterId ORDER BY id ASC LIMIT :limit")
+    suspend fun getCompletedPageAfter(afterId: Long, limit: Int): List<Book>
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertBook(book: Book): Long
 
+    // Runs as one transaction, so observers are invalidated once per call
+    @Insert
+    suspend fun insertBooks(books: List<Book>): List<Long>
+
+    @Update
+    suspend fun updateBooks(books: List<Book>)
+
+    @Query("SELECT * FROM books WHERE id IN (:ids)")
+    suspend fun getBooksByIds(ids: List<Long>): List<Book>
+
+    @Query("SELECT id, naturalKey FROM books")
+    suspend fun getNaturalKeys(): List<BookNaturalKey>
+
+    /**
+     * Writes one import chunk in a single transaction; returns the ids of [inserts].
+     */
+    @Transaction
+    suspend fun importChunk(inserts: List<Book>, updates: List<Book>): List<Long> {
+        if (updates.isNotEmpty()) updateBooks(updates)
+        return insertBooks(inserts)
+    }
+
     @Update
     suspend fun updateBook(book: Book)
 
     @Delete
     suspend fun deleteBook(book: Book)
 
-    @Query("UPDATE books SET status = :status, startDate = :startDate WHERE id = :id")
-    suspend fun updateBookStatus(id: Long, status: BookStatus, startDate: Date?)
+    @Query("DELETE FROM books WHERE id = :id")
+    suspend fun deleteBookById(id: Long)
+
+    /**
+     * Moves book [id] to status [to] if it is currently in one of [from] (see BookStatus.allowedFrom),
+     * updating the dates in the same statement. All right-hand sides read the row as it was before the update:
+     * - entering IN_PROGRESS keeps the first startDate and opens a reading session at [now];
+     * - entering COMPLETED sets endDate to [now].
+     * The reading_sessions triggers open or close the matching session, and update totalReadingDays
+     * from the closed sessions, within the same statement.
+     * Returns the number of rows changed: 0 if the book is missing or the edge is not allowed.
+     */
+    @Query("""
+        UPDATE books SET
+            status = :to,
+            startDate = CASE WHEN :to = ${BookStatusCodes.IN_PROGRESS} THEN COALESCE(startDate, :now) ELSE startDate END,
+            endDate = CASE WHEN :to = ${BookStatusCodes.COMPLETED} THEN :now ELSE endDate END,
+            currentReadingStartDate = CASE WHEN :to = ${BookStatusCodes.IN_PROGRESS} THEN :now ELSE NULL END
+        WHERE id = :id AND status IN (:from)
+    """)
+    suspend fun transition(id: Long, from: List<BookStatus>, to: BookStatus, now: Long): Int
+
+    @Query("SELECT COUNT(*) FROM books WHERE ${QueueSql.IN_QUEUE}")
+    fun getBooksInQueueCount(): Flow<Int>
 
-    @Query("UPDATE books SET status = :status, endDate = :endDate WHERE id = :id")
-    suspend fun markAsCompleted(id: Long, status: BookStatus, endDate: Date?)
+    @Query("SELECT rankKey FROM books WHERE id = :id")
+    suspend fun getRankKey(id: Long): Long?
 
-    @Query("UPDATE books SET status = :status, currentReadingStartDate = :currentReadingStartDate, totalReadingDays = :totalReadingDays WHERE id = :id")
-    suspend fun updateReadingStatus(id: Long, status: BookStatus, currentReadingStartDate: Date?, totalReadingDays: Int)
+    @Query("UPDATE books SET rankKey = :rankKey WHERE id = :id")
+    suspend fun updateRankKey(id: Long, rankKey: Long)
 
-    @Query("SELECT COUNT(*) FROM books WHERE status != 'COMPLETED'")
-    fun getBooksInQueueCount(): Flow<Int>
+    @Query("UPDATE books SET rankKey = :rankKey, ranking = :ranking WHERE id = :id")
+    suspend fun updateRankKeyAndRanking(id: Long, rankKey: Long, ranking: Int)
 
-    @Query("UPDATE books SET ranking = :ranking WHERE id = :id")
-    suspend fun updateRanking(id: Long, ranking: Int)
+    @Query("SELECT rankKey FROM books WHERE ${QueueSql.IN_QUEUE} AND id != :excludeId ORDER BY rankKey ASC LIMIT 1 OFFSET :offset")
+    suspend fun getQueueRankKeyAt(offset: Int, excludeId: Long): Long?
 
-    @Query("UPDATE books SET ranking = ranking + :increment WHERE ranking >= :fromRanking AND ranking <= :toRanking AND id != :excludeId")
-    suspend fun shiftRankings(fromRanking: Int, toRanking: Int, increment: Int, excludeId: Long)
+    @Query("SELECT MAX(rankKey) FROM books WHERE ${QueueSql.IN_QUEUE} AND id != :excludeId")
+    suspend fun getMaxQueueRankKey(excludeId: Long): Long?
+
+    @Query("SELECT id FROM books WHERE ${QueueSql.IN_QUEUE} ORDER BY rankKey ASC, id ASC")
+    suspend fun getQueueIdsInOrder(): List<Long>
+
+    /**
+     * 1-based position of a book in the reading queue, derived from rankKey.
+     */
+    @Query("""
+        SELECT COUNT(*) + 1 FROM books
+        WHERE ${QueueSql.IN_QUEUE}
+        AND rankKey < (SELECT rankKey FROM books WHERE id = :bookId)
+    """)
+    suspend fun getQueuePosition(bookId: Long): Int
+
+    /**
+     * Key that places a book at 1-based [position] in the queue, ignoring [excludeId] (the book
+     * being moved). Spreads the queue out first if the neighbours have no room left between them.
+     */
+    @Transaction
+    suspend fun rankKeyForPosition(position: Int, excludeId: Long): Long {
+        val index = (position - 1).coerceAtLeast(0)
+        suspend fun neighbours(): Pair<Long?, Long?> {
+            val after = getQueueRankKeyAt(index, excludeId)
+            val before = when {
+                index == 0 -> null
+                after == null -> getMaxQueueRankKey(excludeId)
+                else -> getQueueRankKeyAt(index - 1, excludeId)
+            }
+            return before to after
+        }
+        val (before, after) = neighbours()
+        RankKeys.between(before, after)?.let { return it }
+        rebalanceQueue()
+        val (newBefore, newAfter) = neighbours()
+        return RankKeys.between(newBefore, newAfter)!!
+    }
+
+    @Transaction
+    suspend fun insertAtPosition(book: Book, position: Int): Long {
+        return insertBook(book.copy(rankKey = rankKeyForPosition(position, excludeId = 0)))
+    }
+
+    @Transaction
+    suspend fun moveToPosition(bookId: Long, position: Int) {
+        updateRankKey(bookId, rankKeyForPosition(position, excludeId = bookId))
+    }
+
+    /**
+     * Saves an edited book and, if it is queued and its [Book.ranking] differs from its queue
+     * position, moves it there, all in one transaction.
+     */
+    @Transaction
+    suspend fun updateBookAndMove(book: Book) {
+        updateBook(book)
+        if (book.status != BookStatus.COMPLETED && getQueuePosition(book.id) != book.ranking) {
+            moveToPosition(book.id, book.ranking)
+        }
+    }
+
+    /**
+     * Moves a book between two neighbours in one row write.
+     * Returns true if the gap used is getting small and the queue should be rebalanced soon.
+     */
+    @Transaction
+    suspend fun moveBetween(bookId: Long, beforeId: Long?, afterId: Long?): Boolean {
+        var before = beforeId?.let { getRankKey(it) }
+        var after = afterId?.let { getRankKey(it) }
+        val key = RankKeys.between(before, after) ?: run {
+            rebalanceQueue()
+            before = beforeId?.let { getRankKey(it) }
+            after = afterId?.let { getRankKey(it) }
+            RankKeys.between(before, after)!!
+        }
+        updateRankKey(bookId, key)
+        val gap = if (before != null && after != null) after!! - before!! else Long.MAX_VALUE
+        return gap < RankKeys.MIN_GAP
+    }
+
+    /**
+     * Applies an explicit order to the queue: keys are spaced RankKeys.GAP apart and the stored
+     * ranking is refreshed to the 1-based position.
+     */
+    @Transaction
+    suspend fun applyQueueOrder(bookIds: List<Long>) {
+        bookIds.forEachIndexed { index, id ->
+            updateRankKeyAndRanking(id, RankKeys.forPosition(index + 1), index + 1)
+        }
+    }
+
+    @Transaction
+    suspend fun rebalanceQueue() {
+        applyQueueOrder(getQueueIdsInOrder())
+    }
 
     @Query("""
-        SELECT DISTINCT author FROM (
-            SELECT author1 as author FROM books WHERE status != 'COMPLETED' AND author1 IS NOT NULL AND author1 != ''
-            UNION
-            SELECT author2 as author FROM books WHERE status != 'COMPLETED' AND author2 IS NOT NULL AND author2 != ''
-            UNION
-            SELECT author3 as author FROM books WHERE status != 'COMPLETED' AND author3 IS NOT NULL AND author3 != ''
-            UNION
-            SELECT author4 as author FROM books WHERE status != 'COMPLETED' AND author4 IS NOT NULL AND author4 != ''
-            UNION
-            SELECT author5 as author FROM books WHERE status != 'COMPLETED' AND author5 IS NOT NULL AND author5 != ''
-        ) WHERE author IS NOT NULL AND author != ''
-        ORDER BY author ASC
+        SELECT DISTINCT ba.name FROM book_authors ba
+        INNER JOIN books b ON b.id = ba.bookId
+        WHERE b.status != ${BookStatusCodes.COMPLETED}
+        ORDER BY ba.name ASC
     """)
     fun getAllAuthors(): Flow<List<String>>
 
-    @Query("SELECT DISTINCT category FROM books WHERE status != 'COMPLETED'")
+    @Query("SELECT DISTINCT category FROM books WHERE status != ${BookStatusCodes.COMPLETED}")
     fun getAllCategoriesForFilter(): Flow<List<String>>
 }
 
+/**
+ * Reading queue SQL shared by [BookDao] and BookQueueQuery.
+ */
+object QueueSql {
+    const val IN_QUEUE = "inQueue = 1"
+
+    const val SELECT_QUEUE = "SELECT ${BookListItem.COLUMNS} FROM books WHERE $IN_QUEUE"
+}
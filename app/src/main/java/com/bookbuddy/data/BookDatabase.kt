@@ -6,16 +6,21 @@ import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
 import androidx.sqlite.db.SupportSQLiteDatabase
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.launch
-import java.util.Date
 
-@Database(entities = [Book::class, Category::class], version = 4, exportSchema = false)
+@Database(
+    entities = [
+        Book::class, Category::class, BookAuthor::class, BookFts::class,
+        LibraryStats::class, YearlyStats::class, CategoryStats::class, ReadingSession::class
+    ],
+    version = 14,
+    exportSchema = false
+)
 @TypeConverters(DateConverters::class)
 abstract class BookDatabase : RoomDatabase() {
     abstract fun bookDao(): BookDao
     abstract fun categoryDao(): CategoryDao
+    abstract fun statsDao(): StatsDao
+    abstract fun readingSessionDao(): ReadingSessionDao
 
     companion object {
         @Volatile
@@ -30,30 +35,14 @@ abstract class BookDatabase : RoomDatabase() {
                         BookDatabase::class.java,
                         "book_database"
                     )
+                        .addMigrations(*Migrations.ALL)
                         .fallbackToDestructiveMigration()
                         .addCallback(object : RoomDatabase.Callback() {
+                            // Not onCreate/onDestructiveMigration: a destructive migration calls neither
+                            // with the tables in place, while onOpen always sees the final schema
                             override fun onOpen(db: SupportSQLiteDatabase) {
                                 super.onOpen(db)
-                                // Initialize category colors in a background thread
-                                CoroutineScope(Dispatchers.IO).launch {
-                                    try {
-                                        val categoryDao = INSTANCE?.categoryDao()
-                                        if (categoryDao != null) {
-                                            val categoriesWithoutColor = categoryDao.getCategoriesWithoutColor()
-                                            if (categoriesWithoutColor.isNotEmpty()) {
-                                                android.util.Log.d("BookBuddy", "Found ${categoriesWithoutColor.size} categories without colors, initializing...")
-                                                categoriesWithoutColor.forEach { category ->
-                                                    val colorHex = com.bookbuddy.utils.CategoryColorGenerator.generateColorForCategory(category.name)
-                                                    val updatedCategory = category.copy(colorHex = colorHex)
-                                                    categoryDao.updateCategory(updatedCategory)
-                                                    android.util.Log.d("BookBuddy", "Assigned color $colorHex to category: ${category.name}")
-                                                }
-                                            }
-                                        }
-                                    } catch (e: Exception) {
-                                        android.util.Log.e("BookBuddy", "Error initializing category colors in callback", e)
-                                    }
-                                }
+                                DatabaseTriggers.installIfMissing(db)
                             }
                         })
                         .build()
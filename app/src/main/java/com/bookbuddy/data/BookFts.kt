@@ -0,0 +1,20 @@
+package com.bookbuddy.data
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.FtsOptions
+
+/**
+ * Full-text index over book titles and the author display string.
+ * External-content table backed by `books`; Room keeps it in sync with content-sync triggers.
+ */
+@Fts4(contentEntity = Book::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "books_fts")
+data class BookFts(
+    @ColumnInfo(name = "name")
+    val name: String,
+    @ColumnInfo(name = "author")
+    val author: String
+)
+
@@ -0,0 +1,36 @@
+package com.bookbuddy.data
+
+/**
+ * The columns a book card shows, read by the queue and history queries instead of the full [Book].
+ * [displayAuthor] is joined once in SQL from book_authors (falling back to the legacy author column),
+ * so binding a row does no list building or string joining. Load the full [Book] only to edit it.
+ * Reading days come separately from ReadingSessionDao.getReadingTotals.
+ */
+data class BookListItem(
+    val id: Long,
+    val name: String,
+    val displayAuthor: String,
+    val category: String,
+    val ranking: Int,
+    val rankKey: Long,
+    val hasBook: Boolean,
+    val status: BookStatus,
+    val startDate: Long?,
+    val endDate: Long?,
+    val createdAt: Long,
+    val currentReadingStartDate: Long?
+) {
+    companion object {
+        /**
+         * Select list for queries on `books` that return [BookListItem].
+         */
+        const val COLUMNS = """
+            books.id, books.name, books.category, books.ranking, books.rankKey, books.hasBook, books.status,
+            books.startDate, books.endDate, books.createdAt, books.currentReadingStartDate,
+            COALESCE(
+                (SELECT group_concat(name, ', ') FROM (SELECT name FROM book_authors WHERE bookId = books.id ORDER BY position)),
+                books.author
+            ) AS displayAuthor
+        """
+    }
+}
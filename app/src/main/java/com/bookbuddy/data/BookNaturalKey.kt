@@ -0,0 +1,9 @@
+package com.bookbuddy.data
+
+/**
+ * Projection of a book's id and [Book.naturalKey], loaded in bulk to detect duplicates on import.
+ */
+data class BookNaturalKey(
+    val id: Long,
+    val naturalKey: String
+)
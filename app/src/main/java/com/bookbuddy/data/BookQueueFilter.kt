@@ -0,0 +1,22 @@
+package com.bookbuddy.data
+
+/**
+ * Filter and sort applied to the reading queue on the Books to Read screen.
+ * Null or blank fields mean "no filter".
+ */
+data class BookQueueFilter(
+    val author: String? = null,
+    val category: String? = null,
+    val search: String = "",
+    val sortBy: String = SORT_RANKING
+) {
+    // The plain queue in rank order, which can be served from the shared booksToRead flow
+    val isUnfiltered: Boolean
+        get() = author.isNullOrBlank() && category.isNullOrBlank() && search.isBlank() && sortBy == SORT_RANKING
+
+    companion object {
+        const val SORT_RANKING = "ranking"
+        const val SORT_DATE_ASC = "date_asc"
+        const val SORT_DATE_DESC = "date_desc"
+    }
+}
@@ -0,0 +1,67 @@
+package com.bookbuddy.data
+
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteQuery
+
+/**
+ * Builds the SQL for [BookDao.getBooksToReadFiltered] and [BookDao.searchQueue] from a
+ * [BookQueueFilter], adding only the clauses that are in use so each filter combination gets its
+ * own simple plan.
+ */
+object BookQueueQuery {
+
+    // matchinfo layout read by FtsRank.bm25
+    const val MATCHINFO_FORMAT = "pcnalx"
+
+    /**
+     * The queue with the author and category filters applied, in [BookQueueFilter.sortBy] order.
+     * [BookQueueFilter.search] is not applied; use [buildSearch] when it is set.
+     */
+    fun build(filter: BookQueueFilter): SupportSQLiteQuery {
+        val sql = StringBuilder(QueueSql.SELECT_QUEUE)
+        val args = mutableListOf<Any>()
+        appendFilters(filter, sql, args)
+        sql.append(
+            when (filter.sortBy) {
+                BookQueueFilter.SORT_DATE_ASC -> " ORDER BY createdAt ASC"
+                BookQueueFilter.SORT_DATE_DESC -> " ORDER BY createdAt DESC"
+                else -> " ORDER BY rankKey ASC"
+            }
+        )
+        return SimpleSQLiteQuery(sql.toString(), args.toTypedArray())
+    }
+
+    /**
+     * Queue books matching [ftsMatch], the FTS4 MATCH expression for [BookQueueFilter.search]
+     * (see FtsQuery), with the other filters applied. Driven from the FTS index and joined to books
+     * by primary key; rows come back unordered with their matchinfo blob, to be ranked with FtsRank.
+     */
+    fun buildSearch(filter: BookQueueFilter, ftsMatch: String): SupportSQLiteQuery {
+        val sql = StringBuilder(
+            "SELECT ${BookListItem.COLUMNS}, matchinfo(books_fts, '$MATCHINFO_FORMAT') AS matchInfo " +
+                // CROSS JOIN keeps books_fts as the outer loop; otherwise SQLite may walk the inQueue
+                // index and re-run the MATCH for every queue book
+                "FROM books_fts CROSS JOIN books ON books.id = books_fts.docid " +
+                "WHERE books_fts MATCH ? AND books.${QueueSql.IN_QUEUE}"
+        )
+        val args = mutableListOf<Any>(ftsMatch)
+        appendFilters(filter, sql, args)
+        return SimpleSQLiteQuery(sql.toString(), args.toTypedArray())
+    }
+
+    // Author and category are exact values from the dropdowns, so both are indexed equality lookups.
+    // The author is bound as typed and folded by SQLite's LOWER(TRIM()), the same expression the
+    // book_authors triggers store in nameNormalized; Kotlin's lowercase() differs outside ASCII.
+    private fun appendFilters(filter: BookQueueFilter, sql: StringBuilder, args: MutableList<Any>) {
+        val author = filter.author?.trim()
+        if (!author.isNullOrEmpty() && author != "All") {
+            sql.append(" AND books.id IN (SELECT bookId FROM book_authors WHERE nameNormalized = LOWER(TRIM(?)))")
+            args.add(author)
+        }
+        val category = filter.category?.trim()
+        if (!category.isNullOrEmpty() && category != "All") {
+            sql.append(" AND books.category = ?")
+            args.add(category)
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.bookbuddy.data
+
+import androidx.room.Embedded
+
+/**
+ * A queue book found by BookDao.searchQueue, with the FTS4 matchinfo blob it is ranked by.
+ */
+class BookSearchHit(
+    @Embedded val book: BookListItem,
+    val matchInfo: ByteArray
+)
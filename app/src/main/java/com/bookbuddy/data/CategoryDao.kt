@@ -11,6 +11,12 @@ interface CategoryDao {
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     suspend fun insertCategory(category: Category): Long
 
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insertCategories(categories: List<Category>): List<Long>
+
+    @Query("SELECT name FROM categories")
+    suspend fun getAllCategoryNames(): List<String>
+
     @Update
     suspend fun updateCategory(category: Category)
 
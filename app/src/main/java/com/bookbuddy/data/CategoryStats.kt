@@ -0,0 +1,16 @@
+package com.bookbuddy.data
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * Book counts per category name as stored on [Book.category].
+ * Maintained by the triggers in [DatabaseTriggers]; categories with no books have no row.
+ */
+@Entity(tableName = "category_stats")
+data class CategoryStats(
+    @PrimaryKey
+    val category: String,
+    val bookCount: Int,
+    val completedCount: Int
+)
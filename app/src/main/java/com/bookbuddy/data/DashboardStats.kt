@@ -0,0 +1,20 @@
+package com.bookbuddy.data
+
+import java.time.LocalDate
+
+/**
+ * Dashboard counters, read from the statistics tables by [StatsDao.getDashboardStats].
+ */
+data class DashboardStats(
+    val totalRead: Int,
+    val readThisYear: Int,
+    val inProgress: Int,
+    val queueSize: Int
+) {
+    /**
+     * Projected books for the whole year of [today] at the current pace.
+     */
+    fun runRate(today: LocalDate): Double {
+        return (readThisYear.toDouble() / today.dayOfYear) * today.lengthOfYear()
+    }
+}
@@ -0,0 +1,281 @@
+package com.bookbuddy.data
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * SQLite triggers that keep derived tables in sync with `books`, as the current schema defines them.
+ * Created on a fresh install from the database callback. Migrations keep their own frozen copies
+ * of the versions they introduced.
+ */
+object DatabaseTriggers {
+
+    private const val AUTHOR_SLOTS = 5
+
+    /**
+     * INSERT ... SELECT that expands author1..author5 of [ref] (NEW or OLD) into book_authors rows.
+     */
+    private fun insertAuthorsSql(ref: String): String {
+        val slots = (1..AUTHOR_SLOTS).joinToString(" UNION ALL ") { slot ->
+            "SELECT $slot AS position, $ref.author$slot AS name"
+        }
+        return """
+            INSERT INTO book_authors (bookId, position, name, nameNormalized)
+            SELECT $ref.id, position, TRIM(name), LOWER(TRIM(name)) FROM ($slots)
+            WHERE name IS NOT NULL AND TRIM(name) != '';
+        """.trimIndent()
+    }
+
+    val bookAuthorTriggers = listOf(
+        """
+        CREATE TRIGGER IF NOT EXISTS book_authors_after_insert AFTER INSERT ON books BEGIN
+            DELETE FROM book_authors WHERE bookId = NEW.id;
+            ${insertAuthorsSql("NEW")}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS book_authors_after_update
+        AFTER UPDATE OF id, author1, author2, author3, author4, author5 ON books BEGIN
+            DELETE FROM book_authors WHERE bookId = OLD.id;
+            ${insertAuthorsSql("NEW")}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS book_authors_after_delete AFTER DELETE ON books BEGIN
+            DELETE FROM book_authors WHERE bookId = OLD.id;
+        END
+        """.trimIndent()
+    )
+
+    /**
+     * Replaces Room's content-sync triggers for books_fts with versions that only fire when an
+     * indexed column changes, so ranking or status updates do not rewrite the FTS index.
+     */
+    val ftsContentSyncTriggers = listOf(
+        "DROP TRIGGER IF EXISTS room_fts_content_sync_books_fts_BEFORE_UPDATE",
+        "DROP TRIGGER IF EXISTS room_fts_content_sync_books_fts_AFTER_UPDATE",
+        """
+        CREATE TRIGGER room_fts_content_sync_books_fts_BEFORE_UPDATE
+        BEFORE UPDATE OF id, name, author ON books BEGIN
+            DELETE FROM books_fts WHERE docid = OLD.rowid;
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER room_fts_content_sync_books_fts_AFTER_UPDATE
+        AFTER UPDATE OF id, name, author ON books BEGIN
+            INSERT INTO books_fts(docid, name, author) VALUES (NEW.rowid, NEW.name, NEW.author);
+        END
+        """.trimIndent()
+    )
+
+    /**
+     * Statements that add ([sign] = 1) or remove ([sign] = -1) the books selected by [source]
+     * (a SELECT of status, endDate and category) from the statistics tables.
+     * Missing rows are created with NOT EXISTS rather than INSERT OR IGNORE, because an outer
+     * INSERT OR REPLACE on books would override the trigger's conflict clause.
+     */
+    private fun statsDeltaSql(source: String, sign: Int): String {
+        val endYear = "CAST(strftime('%Y', s.endDate / 1000, 'unixepoch', 'localtime') AS INTEGER)"
+        val cleanup = if (sign < 0) {
+            """
+            DELETE FROM yearly_stats WHERE completedCount <= 0;
+            DELETE FROM category_stats WHERE bookCount <= 0;
+            """
+        } else {
+            ""
+        }
+        return """
+            UPDATE library_stats SET
+                totalCount = totalCount + $sign * (SELECT COUNT(*) FROM ($source) s),
+                completedCount = completedCount + $sign * (SELECT COUNT(*) FROM ($source) s WHERE s.status = ${BookStatusCodes.COMPLETED}),
+                inProgressCount = inProgressCount + $sign * (SELECT COUNT(*) FROM ($source) s WHERE s.status = ${BookStatusCodes.IN_PROGRESS}),
+                queueCount = queueCount + $sign * (SELECT COUNT(*) FROM ($source) s WHERE s.status IN ${StatsSql.QUEUE_STATUSES})
+            WHERE id = 0;
+            INSERT INTO yearly_stats (year, completedCount)
+            SELECT DISTINCT $endYear, 0 FROM ($source) s WHERE s.status = ${BookStatusCodes.COMPLETED} AND s.endDate IS NOT NULL
+            AND NOT EXISTS (SELECT 1 FROM yearly_stats y WHERE y.year = $endYear);
+            UPDATE yearly_stats SET completedCount = completedCount + $sign * (
+                SELECT COUNT(*) FROM ($source) s
+                WHERE s.status = ${BookStatusCodes.COMPLETED} AND s.endDate IS NOT NULL AND $endYear = yearly_stats.year
+            )
+            WHERE year IN (SELECT $endYear FROM ($source) s WHERE s.status = ${BookStatusCodes.COMPLETED} AND s.endDate IS NOT NULL);
+            INSERT INTO category_stats (category, bookCount, completedCount)
+            SELECT DISTINCT s.category, 0, 0 FROM ($source) s
+            WHERE NOT EXISTS (SELECT 1 FROM category_stats c WHERE c.category = s.category);
+            UPDATE category_stats SET
+                bookCount = bookCount + $sign * (SELECT COUNT(*) FROM ($source) s WHERE s.category = category_stats.category),
+                completedCount = completedCount + $sign * (
+                    SELECT COUNT(*) FROM ($source) s WHERE s.category = category_stats.category AND s.status = ${BookStatusCodes.COMPLETED}
+                )
+            WHERE category IN (SELECT s.category FROM ($source) s);
+            $cleanup
+        """.trimIndent()
+    }
+
+    private const val NEW_ROW = "SELECT NEW.status AS status, NEW.endDate AS endDate, NEW.category AS category"
+    private const val OLD_ROW = "SELECT OLD.status AS status, OLD.endDate AS endDate, OLD.category AS category"
+
+    /**
+     * Keep library_stats, yearly_stats and category_stats in step with books.
+     * The BEFORE INSERT trigger removes a row that an INSERT OR REPLACE is about to overwrite,
+     * since the implicit delete does not fire the delete trigger.
+     */
+    val statsTriggers = listOf(
+        """
+        CREATE TRIGGER IF NOT EXISTS books_stats_before_insert BEFORE INSERT ON books BEGIN
+            ${statsDeltaSql("SELECT status, endDate, category FROM books WHERE id = NEW.id", -1)}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS books_stats_after_insert AFTER INSERT ON books BEGIN
+            ${statsDeltaSql(NEW_ROW, 1)}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS books_stats_after_update
+        AFTER UPDATE OF status, endDate, category ON books BEGIN
+            ${statsDeltaSql(OLD_ROW, -1)}
+            ${statsDeltaSql(NEW_ROW, 1)}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS books_stats_after_delete AFTER DELETE ON books BEGIN
+            ${statsDeltaSql(OLD_ROW, -1)}
+        END
+        """.trimIndent()
+    )
+
+    private const val SET_IN_QUEUE = "UPDATE books SET inQueue = (NEW.status != ${BookStatusCodes.COMPLETED}) " +
+        "WHERE id = NEW.id AND inQueue != (NEW.status != ${BookStatusCodes.COMPLETED});"
+
+    /**
+     * Keep books.inQueue equal to status != COMPLETED, whatever value the writer supplied.
+     * The inner UPDATE does not re-fire these triggers, as recursive triggers are off.
+     */
+    val queueFlagTriggers = listOf(
+        """
+        CREATE TRIGGER IF NOT EXISTS books_in_queue_after_insert AFTER INSERT ON books BEGIN
+            $SET_IN_QUEUE
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS books_in_queue_after_update AFTER UPDATE OF status, inQueue ON books BEGIN
+            $SET_IN_QUEUE
+        END
+        """.trimIndent()
+    )
+
+    private const val SESSION_NEW_ROW = "SELECT NEW.id AS id, NEW.status AS status, " +
+        "NEW.totalReadingDays AS totalReadingDays, NEW.endDate AS endDate, NEW.currentReadingStartDate AS currentReadingStartDate"
+
+    /**
+     * Statements that create reading_sessions rows for the books selected by [source] (a SELECT of
+     * id, status, totalReadingDays, endDate and currentReadingStartDate): days read before the book
+     * had sessions become one closed session ending when the current session began or the book was
+     * finished, and a book being read gets an open session.
+     */
+    private fun seedSessionsSql(source: String): List<String> {
+        val today = ReadingSessionSql.TODAY_EPOCH_DAY
+        val lastDay = "COALESCE(${ReadingSessionSql.epochDay("s.currentReadingStartDate")}, " +
+            "${ReadingSessionSql.epochDay("s.endDate")}, $today)"
+        return listOf(
+            """
+            INSERT INTO reading_sessions (bookId, startEpochDay, endEpochDay)
+            SELECT s.id, $lastDay - s.totalReadingDays, $lastDay FROM ($source) s
+            WHERE s.totalReadingDays > 0
+            """.trimIndent(),
+            """
+            INSERT INTO reading_sessions (bookId, startEpochDay, endEpochDay)
+            SELECT s.id, COALESCE(${ReadingSessionSql.epochDay("s.currentReadingStartDate")}, $today), NULL FROM ($source) s
+            WHERE s.status = ${BookStatusCodes.IN_PROGRESS}
+            """.trimIndent()
+        )
+    }
+
+    /**
+     * Keep reading_sessions in step with status changes: any status change closes the open
+     * session today, and entering IN_PROGRESS opens a new one. A single BookDao.transition
+     * UPDATE therefore records the session in the same statement.
+     * reading_sessions is the source of truth for reading days: books.totalReadingDays is reset to
+     * the closed sessions' days whenever a session closes or a write (an edit or an import) sets it
+     * to anything else.
+     */
+    val readingSessionTriggers = listOf(
+        """
+        CREATE TRIGGER IF NOT EXISTS reading_sessions_after_insert AFTER INSERT ON books BEGIN
+            DELETE FROM reading_sessions WHERE bookId = NEW.id;
+            ${seedSessionsSql(SESSION_NEW_ROW).joinToString(";\n", postfix = ";")}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS reading_sessions_after_status
+        AFTER UPDATE OF status ON books WHEN OLD.status != NEW.status BEGIN
+            UPDATE reading_sessions SET endEpochDay = MAX(startEpochDay, ${ReadingSessionSql.TODAY_EPOCH_DAY})
+            WHERE bookId = NEW.id AND endEpochDay IS NULL;
+            INSERT INTO reading_sessions (bookId, startEpochDay, endEpochDay)
+            SELECT NEW.id, COALESCE(${ReadingSessionSql.epochDay("NEW.currentReadingStartDate")}, ${ReadingSessionSql.TODAY_EPOCH_DAY}), NULL
+            WHERE NEW.status = ${BookStatusCodes.IN_PROGRESS};
+            UPDATE books SET totalReadingDays = ${ReadingSessionSql.closedDays("NEW.id")} WHERE id = NEW.id;
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS reading_sessions_days_after_update
+        AFTER UPDATE OF totalReadingDays ON books
+        WHEN NEW.totalReadingDays IS NOT ${ReadingSessionSql.closedDays("NEW.id")} BEGIN
+            UPDATE books SET totalReadingDays = ${ReadingSessionSql.closedDays("NEW.id")} WHERE id = NEW.id;
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS reading_sessions_after_delete AFTER DELETE ON books BEGIN
+            DELETE FROM reading_sessions WHERE bookId = OLD.id;
+        END
+        """.trimIndent()
+    )
+
+    /**
+     * Recomputes the statistics tables from books.
+     */
+    fun rebuildStatistics(db: SupportSQLiteDatabase) {
+        db.execSQL("DELETE FROM library_stats")
+        db.execSQL("INSERT INTO library_stats (id, totalCount, completedCount, inProgressCount, queueCount) ${StatsSql.RECOMPUTE_LIBRARY_STATS}")
+        db.execSQL("DELETE FROM yearly_stats")
+        db.execSQL("INSERT INTO yearly_stats (year, completedCount) ${StatsSql.RECOMPUTE_YEARLY_STATS}")
+        db.execSQL("DELETE FROM category_stats")
+        db.execSQL("INSERT INTO category_stats (category, bookCount, completedCount) ${StatsSql.RECOMPUTE_CATEGORY_STATS}")
+    }
+
+    fun createAll(db: SupportSQLiteDatabase) {
+        bookAuthorTriggers.forEach { db.execSQL(it) }
+        ftsContentSyncTriggers.forEach { db.execSQL(it) }
+        statsTriggers.forEach { db.execSQL(it) }
+        queueFlagTriggers.forEach { db.execSQL(it) }
+        readingSessionTriggers.forEach { db.execSQL(it) }
+    }
+
+    private val triggerNames: Set<String> = run {
+        val name = Regex("""CREATE TRIGGER (?:IF NOT EXISTS )?(\w+)""")
+        (bookAuthorTriggers + ftsContentSyncTriggers + statsTriggers + queueFlagTriggers + readingSessionTriggers)
+            .mapNotNullTo(HashSet()) { name.find(it)?.groupValues?.get(1) }
+    }
+
+    /**
+     * Creates the triggers and recomputes the statistics if any trigger is missing, which is the
+     * case on a fresh install and after a destructive migration. Otherwise only reads sqlite_master.
+     */
+    fun installIfMissing(db: SupportSQLiteDatabase) {
+        val existing = HashSet<String>()
+        db.query("SELECT name FROM sqlite_master WHERE type = 'trigger'").use { cursor ->
+            while (cursor.moveToNext()) existing.add(cursor.getString(0))
+        }
+        if (existing.containsAll(triggerNames)) return
+
+        android.util.Log.d("BookBuddy", "Installing ${(triggerNames - existing).size} missing triggers")
+        db.beginTransaction()
+        try {
+            createAll(db)
+            rebuildStatistics(db)
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.bookbuddy.data
+
+/**
+ * What an import does with a row whose [Book.naturalKey] matches a book already in the library.
+ */
+enum class ImportMode {
+    SKIP,   // Keep the existing book unchanged
+    MERGE,  // Keep the existing book, filling in only what it is missing
+    UPSERT  // Overwrite the existing book with the imported row, keeping its id and queue position
+}
+
+/**
+ * Running totals of an import, emitted after each chunk.
+ */
+data class ImportCounts(
+    val added: Int = 0,
+    val updated: Int = 0,
+    val skipped: Int = 0
+) {
+    val processed: Int get() = added + updated + skipped
+}
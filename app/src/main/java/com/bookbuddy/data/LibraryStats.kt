@@ -0,0 +1,18 @@
+package com.bookbuddy.data
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * Library-wide counters, a single row with [id] 0.
+ * Maintained by the triggers in [DatabaseTriggers]; never write to this table directly.
+ */
+@Entity(tableName = "library_stats")
+data class LibraryStats(
+    @PrimaryKey
+    val id: Int = 0,
+    val totalCount: Int,
+    val completedCount: Int,
+    val inProgressCount: Int,
+    val queueCount: Int // NOT_STARTED, IN_PROGRESS and ON_HOLD
+)
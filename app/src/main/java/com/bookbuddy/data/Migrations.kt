@@ -0,0 +1,464 @@
+package com.bookbuddy.data
+
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * Schema migrations for [BookDatabase]. Versions before 4 still fall back to a destructive migration.
+ * Each migration builds the schema its version shipped with from the frozen SQL at the end of this
+ * object, never from DatabaseTriggers or StatsSql, which follow the current schema.
+ */
+object Migrations {
+
+    /**
+     * 4 -> 5: normalized book_authors table, backfilled from author1..author5.
+     */
+    val MIGRATION_4_5 = object : Migration(4, 5) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("""
+                CREATE TABLE IF NOT EXISTS `book_authors` (
+                    `bookId` INTEGER NOT NULL,
+                    `position` INTEGER NOT NULL,
+                    `name` TEXT NOT NULL,
+                    `nameNormalized` TEXT NOT NULL,
+                    PRIMARY KEY(`bookId`, `position`)
+                )
+            """.trimIndent())
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_book_authors_name_bookId` ON `book_authors` (`name`, `bookId`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_book_authors_nameNormalized_bookId` ON `book_authors` (`nameNormalized`, `bookId`)")
+            backfillBookAuthorsV5(db)
+            bookAuthorTriggersV5.forEach { db.execSQL(it) }
+        }
+    }
+
+    /**
+     * 5 -> 6: FTS4 index over books.name and books.author, with the same content-sync
+     * triggers Room generates for a fresh install.
+     */
+    val MIGRATION_5_6 = object : Migration(5, 6) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `books_fts` USING FTS4(`name` TEXT NOT NULL, `author` TEXT NOT NULL, tokenize=unicode61, content=`books`)")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_books_fts_BEFORE_UPDATE BEFORE UPDATE ON `books` BEGIN DELETE FROM `books_fts` WHERE `docid`=OLD.`rowid`; END")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_books_fts_BEFORE_DELETE BEFORE DELETE ON `books` BEGIN DELETE FROM `books_fts` WHERE `docid`=OLD.`rowid`; END")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_books_fts_AFTER_UPDATE AFTER UPDATE ON `books` BEGIN INSERT INTO `books_fts`(`docid`, `name`, `author`) VALUES (NEW.`rowid`, NEW.`name`, NEW.`author`); END")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_books_fts_AFTER_INSERT AFTER INSERT ON `books` BEGIN INSERT INTO `books_fts`(`docid`, `name`, `author`) VALUES (NEW.`rowid`, NEW.`name`, NEW.`author`); END")
+            db.execSQL("INSERT INTO `books_fts`(`books_fts`) VALUES('rebuild')")
+        }
+    }
+
+    /**
+     * 6 -> 7: secondary indices on books for the status-filtered, sorted list queries.
+     */
+    val MIGRATION_6_7 = object : Migration(6, 7) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_status_ranking` ON `books` (`status`, `ranking`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_status_endDate` ON `books` (`status`, `endDate`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_status_startDate` ON `books` (`status`, `startDate`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_category_status` ON `books` (`category`, `status`)")
+        }
+    }
+
+    /**
+     * 7 -> 8: gapped rankKey column for queue order. Existing queue order is respaced by
+     * [RANK_GAP_V8] so a later move only has to write the moved row.
+     */
+    val MIGRATION_7_8 = object : Migration(7, 8) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("ALTER TABLE `books` ADD COLUMN `rankKey` INTEGER NOT NULL DEFAULT 0")
+            db.execSQL("DROP INDEX IF EXISTS `index_books_status_ranking`")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_status_rankKey` ON `books` (`status`, `rankKey`)")
+            ftsContentSyncTriggersV8.forEach { db.execSQL(it) }
+
+            val queueIds = mutableListOf<Long>()
+            db.query("SELECT id FROM books WHERE status IN ('NOT_STARTED', 'IN_PROGRESS', 'ON_HOLD') ORDER BY ranking ASC, id ASC").use { cursor ->
+                while (cursor.moveToNext()) {
+                    queueIds.add(cursor.getLong(0))
+                }
+            }
+            queueIds.forEachIndexed { index, id ->
+                db.execSQL(
+                    "UPDATE books SET rankKey = ?, ranking = ? WHERE id = ?",
+                    arrayOf<Any>((index + 1) * RANK_GAP_V8, index + 1, id)
+                )
+            }
+            db.execSQL("UPDATE books SET rankKey = ranking * $RANK_GAP_V8 WHERE status = 'COMPLETED'")
+        }
+    }
+
+    /**
+     * 8 -> 9: trigger-maintained statistics tables, filled from the existing books.
+     */
+    val MIGRATION_8_9 = object : Migration(8, 9) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `library_stats` (`id` INTEGER NOT NULL, `totalCount` INTEGER NOT NULL, `completedCount` INTEGER NOT NULL, `inProgressCount` INTEGER NOT NULL, `queueCount` INTEGER NOT NULL, PRIMARY KEY(`id`))")
+            db.execSQL("CREATE TABLE IF NOT EXISTS `yearly_stats` (`year` INTEGER NOT NULL, `completedCount` INTEGER NOT NULL, PRIMARY KEY(`year`))")
+            db.execSQL("CREATE TABLE IF NOT EXISTS `category_stats` (`category` TEXT NOT NULL, `bookCount` INTEGER NOT NULL, `completedCount` INTEGER NOT NULL, PRIMARY KEY(`category`))")
+            rebuildStatistics(db, TEXT_STATUSES)
+            statsTriggers(TEXT_STATUSES).forEach { db.execSQL(it) }
+        }
+    }
+
+    /**
+     * 9 -> 10: indexed naturalKey column for duplicate detection, computed in Kotlin so it
+     * folds case the same way as NaturalKeys does for imported rows.
+     */
+    val MIGRATION_9_10 = object : Migration(9, 10) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("ALTER TABLE `books` ADD COLUMN `naturalKey` TEXT NOT NULL DEFAULT ''")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_naturalKey` ON `books` (`naturalKey`)")
+
+            val keys = mutableListOf<Pair<Long, String>>()
+            db.query("SELECT id, name, author, author1, author2, author3, author4, author5 FROM books").use { cursor ->
+                while (cursor.moveToNext()) {
+                    val authors = (3..7).map { if (cursor.isNull(it)) null else cursor.getString(it) }
+                    keys.add(cursor.getLong(0) to NaturalKeys.of(cursor.getString(1), cursor.getString(2), authors))
+                }
+            }
+            keys.forEach { (id, key) ->
+                db.execSQL("UPDATE books SET naturalKey = ? WHERE id = ?", arrayOf<Any>(key, id))
+            }
+        }
+    }
+
+    /**
+     * 10 -> 11: status stored as a BookStatusCodes integer instead of the enum name. SQLite cannot
+     * change a column's type, so books is rebuilt with the same ids (keeping books_fts docids and
+     * book_authors valid), then its indices and triggers are recreated and the statistics recomputed.
+     * Statistics built by earlier migrations in the same upgrade compared text statuses and are replaced here.
+     */
+    val MIGRATION_10_11 = object : Migration(10, 11) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            val columns = "id, name, author, author1, author2, author3, author4, author5, category, ranking, rankKey, " +
+                "hasBook, status, startDate, endDate, createdAt, totalReadingDays, currentReadingStartDate, naturalKey"
+            db.execSQL("""
+                CREATE TABLE IF NOT EXISTS `books_new` (
+                    `id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `name` TEXT NOT NULL, `author` TEXT NOT NULL,
+                    `author1` TEXT, `author2` TEXT, `author3` TEXT, `author4` TEXT, `author5` TEXT,
+                    `category` TEXT NOT NULL, `ranking` INTEGER NOT NULL, `rankKey` INTEGER NOT NULL DEFAULT 0,
+                    `hasBook` INTEGER NOT NULL, `status` INTEGER NOT NULL, `startDate` INTEGER, `endDate` INTEGER,
+                    `createdAt` INTEGER NOT NULL, `totalReadingDays` INTEGER NOT NULL, `currentReadingStartDate` INTEGER,
+                    `naturalKey` TEXT NOT NULL DEFAULT ''
+                )
+            """.trimIndent())
+            db.execSQL("""
+                INSERT INTO books_new ($columns)
+                SELECT id, name, author, author1, author2, author3, author4, author5, category, ranking, rankKey, hasBook,
+                    CASE status
+                        WHEN 'IN_PROGRESS' THEN 1
+                        WHEN 'ON_HOLD' THEN 2
+                        WHEN 'COMPLETED' THEN 3
+                        ELSE 0
+                    END,
+                    startDate, endDate, createdAt, totalReadingDays, currentReadingStartDate, naturalKey
+                FROM books
+            """.trimIndent())
+            // Keep the AUTOINCREMENT high-water mark so ids of deleted books are not reused. books_new
+            // may have no sqlite_sequence row yet (nothing copied), so replace rather than update it.
+            val seq = db.query("SELECT MAX(seq) FROM sqlite_sequence WHERE name IN ('books', 'books_new')").use { cursor ->
+                if (cursor.moveToFirst() && !cursor.isNull(0)) cursor.getLong(0) else null
+            }
+            db.execSQL("DELETE FROM sqlite_sequence WHERE name = 'books_new'")
+            if (seq != null) {
+                db.execSQL("INSERT INTO sqlite_sequence (name, seq) VALUES ('books_new', ?)", arrayOf<Any>(seq))
+            }
+            db.execSQL("DROP TABLE books")
+            db.execSQL("ALTER TABLE books_new RENAME TO books")
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_status_rankKey` ON `books` (`status`, `rankKey`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_status_endDate` ON `books` (`status`, `endDate`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_status_startDate` ON `books` (`status`, `startDate`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_category_status` ON `books` (`category`, `status`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_naturalKey` ON `books` (`naturalKey`)")
+            // Dropping books dropped every trigger on it, including Room's own FTS content-sync triggers
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_books_fts_BEFORE_DELETE BEFORE DELETE ON `books` BEGIN DELETE FROM `books_fts` WHERE `docid`=OLD.`rowid`; END")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_books_fts_AFTER_INSERT AFTER INSERT ON `books` BEGIN INSERT INTO `books_fts`(`docid`, `name`, `author`) VALUES (NEW.`rowid`, NEW.`name`, NEW.`author`); END")
+            bookAuthorTriggersV5.forEach { db.execSQL(it) }
+            ftsContentSyncTriggersV8.forEach { db.execSQL(it) }
+            statsTriggers(CODE_STATUSES).forEach { db.execSQL(it) }
+            rebuildStatistics(db, CODE_STATUSES)
+        }
+    }
+
+    /**
+     * 11 -> 12: trigger-maintained reading_sessions table, seeded from each book's reading days
+     * and current session.
+     */
+    val MIGRATION_11_12 = object : Migration(11, 12) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `reading_sessions` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `bookId` INTEGER NOT NULL, `startEpochDay` INTEGER NOT NULL, `endEpochDay` INTEGER)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_reading_sessions_bookId` ON `reading_sessions` (`bookId`)")
+            db.execSQL("DELETE FROM reading_sessions")
+            seedSessionsSqlV12("SELECT id, status, totalReadingDays, endDate, currentReadingStartDate FROM books")
+                .forEach { db.execSQL(it) }
+            readingSessionTriggersV12.forEach { db.execSQL(it) }
+        }
+    }
+
+    /**
+     * 12 -> 13: trigger-maintained inQueue flag with an (inQueue, rankKey) index, so the queue
+     * queries read rows in order from the index instead of sorting the three queue statuses.
+     */
+    val MIGRATION_12_13 = object : Migration(12, 13) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("ALTER TABLE `books` ADD COLUMN `inQueue` INTEGER NOT NULL DEFAULT 1")
+            db.execSQL("UPDATE books SET inQueue = (status != 3)")
+            db.execSQL("DROP INDEX IF EXISTS `index_books_status_rankKey`")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_books_inQueue_rankKey` ON `books` (`inQueue`, `rankKey`)")
+            db.execSQL("""
+                CREATE TRIGGER IF NOT EXISTS books_in_queue_after_insert AFTER INSERT ON books BEGIN
+                    UPDATE books SET inQueue = (NEW.status != 3) WHERE id = NEW.id AND inQueue != (NEW.status != 3);
+                END
+            """.trimIndent())
+            db.execSQL("""
+                CREATE TRIGGER IF NOT EXISTS books_in_queue_after_update AFTER UPDATE OF status, inQueue ON books BEGIN
+                    UPDATE books SET inQueue = (NEW.status != 3) WHERE id = NEW.id AND inQueue != (NEW.status != 3);
+                END
+            """.trimIndent())
+        }
+    }
+
+    /**
+     * 13 -> 14: reading_sessions becomes the only source of reading days. books.totalReadingDays is
+     * reset from the closed sessions, and triggers keep it there when a session closes or a write
+     * (an edit or an import) sets it to anything else.
+     */
+    val MIGRATION_13_14 = object : Migration(13, 14) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("DROP TRIGGER IF EXISTS reading_sessions_after_status")
+            db.execSQL("""
+                CREATE TRIGGER IF NOT EXISTS reading_sessions_after_status
+                AFTER UPDATE OF status ON books WHEN OLD.status != NEW.status BEGIN
+                    UPDATE reading_sessions SET endEpochDay = MAX(startEpochDay, $EPOCH_DAY_TODAY_V12)
+                    WHERE bookId = NEW.id AND endEpochDay IS NULL;
+                    INSERT INTO reading_sessions (bookId, startEpochDay, endEpochDay)
+                    SELECT NEW.id, COALESCE(${epochDayV12("NEW.currentReadingStartDate")}, $EPOCH_DAY_TODAY_V12), NULL
+                    WHERE NEW.status = 1;
+                    UPDATE books SET totalReadingDays = ${closedDaysV14("NEW.id")} WHERE id = NEW.id;
+                END
+            """.trimIndent())
+            db.execSQL("UPDATE books SET totalReadingDays = ${closedDaysV14("books.id")}")
+            db.execSQL("""
+                CREATE TRIGGER IF NOT EXISTS reading_sessions_days_after_update
+                AFTER UPDATE OF totalReadingDays ON books
+                WHEN NEW.totalReadingDays IS NOT ${closedDaysV14("NEW.id")} BEGIN
+                    UPDATE books SET totalReadingDays = ${closedDaysV14("NEW.id")} WHERE id = NEW.id;
+                END
+            """.trimIndent())
+        }
+    }
+
+    val ALL: Array<Migration> = arrayOf(
+        MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11,
+        MIGRATION_11_12, MIGRATION_12_13, MIGRATION_13_14
+    )
+
+    // Frozen SQL: the triggers and derived rows as each version shipped them. Never edit these
+    // to follow a schema change; add a migration that replaces them instead.
+
+    private const val RANK_GAP_V8 = 1L shl 20
+
+    /**
+     * Status literals of a schema version: enum names up to 10, BookStatusCodes values from 11.
+     */
+    private class StatusLiterals(val completed: String, val inProgress: String, val queue: String)
+
+    private val TEXT_STATUSES = StatusLiterals("'COMPLETED'", "'IN_PROGRESS'", "('NOT_STARTED', 'IN_PROGRESS', 'ON_HOLD')")
+    private val CODE_STATUSES = StatusLiterals("3", "1", "(0, 1, 2)")
+
+    private const val EPOCH_DAY_TODAY_V12 = "CAST(julianday(date('now', 'localtime')) - 2440587.5 AS INTEGER)"
+
+    private fun epochDayV12(millis: String) =
+        "CAST(julianday(date($millis / 1000, 'unixepoch', 'localtime')) - 2440587.5 AS INTEGER)"
+
+    private fun closedDaysV14(bookId: String) =
+        "(SELECT COALESCE(SUM(endEpochDay - startEpochDay), 0) FROM reading_sessions WHERE bookId = $bookId AND endEpochDay IS NOT NULL)"
+
+    private fun insertAuthorsSqlV5(ref: String): String {
+        val slots = (1..5).joinToString(" UNION ALL ") { slot -> "SELECT $slot AS position, $ref.author$slot AS name" }
+        return """
+            INSERT INTO book_authors (bookId, position, name, nameNormalized)
+            SELECT $ref.id, position, TRIM(name), LOWER(TRIM(name)) FROM ($slots)
+            WHERE name IS NOT NULL AND TRIM(name) != '';
+        """.trimIndent()
+    }
+
+    private val bookAuthorTriggersV5 = listOf(
+        """
+        CREATE TRIGGER IF NOT EXISTS book_authors_after_insert AFTER INSERT ON books BEGIN
+            DELETE FROM book_authors WHERE bookId = NEW.id;
+            ${insertAuthorsSqlV5("NEW")}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS book_authors_after_update
+        AFTER UPDATE OF id, author1, author2, author3, author4, author5 ON books BEGIN
+            DELETE FROM book_authors WHERE bookId = OLD.id;
+            ${insertAuthorsSqlV5("NEW")}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS book_authors_after_delete AFTER DELETE ON books BEGIN
+            DELETE FROM book_authors WHERE bookId = OLD.id;
+        END
+        """.trimIndent()
+    )
+
+    private fun backfillBookAuthorsV5(db: SupportSQLiteDatabase) {
+        db.execSQL("DELETE FROM book_authors")
+        for (slot in 1..5) {
+            db.execSQL("""
+                INSERT INTO book_authors (bookId, position, name, nameNormalized)
+                SELECT id, $slot, TRIM(author$slot), LOWER(TRIM(author$slot)) FROM books
+                WHERE author$slot IS NOT NULL AND TRIM(author$slot) != ''
+            """.trimIndent())
+        }
+    }
+
+    private val ftsContentSyncTriggersV8 = listOf(
+        "DROP TRIGGER IF EXISTS room_fts_content_sync_books_fts_BEFORE_UPDATE",
+        "DROP TRIGGER IF EXISTS room_fts_content_sync_books_fts_AFTER_UPDATE",
+        """
+        CREATE TRIGGER room_fts_content_sync_books_fts_BEFORE_UPDATE
+        BEFORE UPDATE OF id, name, author ON books BEGIN
+            DELETE FROM books_fts WHERE docid = OLD.rowid;
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER room_fts_content_sync_books_fts_AFTER_UPDATE
+        AFTER UPDATE OF id, name, author ON books BEGIN
+            INSERT INTO books_fts(docid, name, author) VALUES (NEW.rowid, NEW.name, NEW.author);
+        END
+        """.trimIndent()
+    )
+
+    private fun statsDeltaSql(source: String, sign: Int, status: StatusLiterals): String {
+        val endYear = "CAST(strftime('%Y', s.endDate / 1000, 'unixepoch', 'localtime') AS INTEGER)"
+        val cleanup = if (sign < 0) {
+            """
+            DELETE FROM yearly_stats WHERE completedCount <= 0;
+            DELETE FROM category_stats WHERE bookCount <= 0;
+            """
+        } else {
+            ""
+        }
+        return """
+            UPDATE library_stats SET
+                totalCount = totalCount + $sign * (SELECT COUNT(*) FROM ($source) s),
+                completedCount = completedCount + $sign * (SELECT COUNT(*) FROM ($source) s WHERE s.status = ${status.completed}),
+                inProgressCount = inProgressCount + $sign * (SELECT COUNT(*) FROM ($source) s WHERE s.status = ${status.inProgress}),
+                queueCount = queueCount + $sign * (SELECT COUNT(*) FROM ($source) s WHERE s.status IN ${status.queue})
+            WHERE id = 0;
+            INSERT INTO yearly_stats (year, completedCount)
+            SELECT DISTINCT $endYear, 0 FROM ($source) s WHERE s.status = ${status.completed} AND s.endDate IS NOT NULL
+            AND NOT EXISTS (SELECT 1 FROM yearly_stats y WHERE y.year = $endYear);
+            UPDATE yearly_stats SET completedCount = completedCount + $sign * (
+                SELECT COUNT(*) FROM ($source) s
+                WHERE s.status = ${status.completed} AND s.endDate IS NOT NULL AND $endYear = yearly_stats.year
+            )
+            WHERE year IN (SELECT $endYear FROM ($source) s WHERE s.status = ${status.completed} AND s.endDate IS NOT NULL);
+            INSERT INTO category_stats (category, bookCount, completedCount)
+            SELECT DISTINCT s.category, 0, 0 FROM ($source) s
+            WHERE NOT EXISTS (SELECT 1 FROM category_stats c WHERE c.category = s.category);
+            UPDATE category_stats SET
+                bookCount = bookCount + $sign * (SELECT COUNT(*) FROM ($source) s WHERE s.category = category_stats.category),
+                completedCount = completedCount + $sign * (
+                    SELECT COUNT(*) FROM ($source) s WHERE s.category = category_stats.category AND s.status = ${status.completed}
+                )
+            WHERE category IN (SELECT s.category FROM ($source) s);
+            $cleanup
+        """.trimIndent()
+    }
+
+    private fun statsTriggers(status: StatusLiterals): List<String> {
+        val newRow = "SELECT NEW.status AS status, NEW.endDate AS endDate, NEW.category AS category"
+        val oldRow = "SELECT OLD.status AS status, OLD.endDate AS endDate, OLD.category AS category"
+        return listOf(
+            """
+            CREATE TRIGGER IF NOT EXISTS books_stats_before_insert BEFORE INSERT ON books BEGIN
+                ${statsDeltaSql("SELECT status, endDate, category FROM books WHERE id = NEW.id", -1, status)}
+            END
+            """.trimIndent(),
+            """
+            CREATE TRIGGER IF NOT EXISTS books_stats_after_insert AFTER INSERT ON books BEGIN
+                ${statsDeltaSql(newRow, 1, status)}
+            END
+            """.trimIndent(),
+            """
+            CREATE TRIGGER IF NOT EXISTS books_stats_after_update
+            AFTER UPDATE OF status, endDate, category ON books BEGIN
+                ${statsDeltaSql(oldRow, -1, status)}
+                ${statsDeltaSql(newRow, 1, status)}
+            END
+            """.trimIndent(),
+            """
+            CREATE TRIGGER IF NOT EXISTS books_stats_after_delete AFTER DELETE ON books BEGIN
+                ${statsDeltaSql(oldRow, -1, status)}
+            END
+            """.trimIndent()
+        )
+    }
+
+    private fun rebuildStatistics(db: SupportSQLiteDatabase, status: StatusLiterals) {
+        val endYear = "CAST(strftime('%Y', endDate / 1000, 'unixepoch', 'localtime') AS INTEGER)"
+        db.execSQL("DELETE FROM library_stats")
+        db.execSQL("""
+            INSERT INTO library_stats (id, totalCount, completedCount, inProgressCount, queueCount)
+            SELECT 0, COUNT(*), COALESCE(SUM(status = ${status.completed}), 0), COALESCE(SUM(status = ${status.inProgress}), 0),
+                COALESCE(SUM(status IN ${status.queue}), 0) FROM books
+        """.trimIndent())
+        db.execSQL("DELETE FROM yearly_stats")
+        db.execSQL("""
+            INSERT INTO yearly_stats (year, completedCount)
+            SELECT $endYear AS year, COUNT(*) FROM books
+            WHERE status = ${status.completed} AND endDate IS NOT NULL GROUP BY year
+        """.trimIndent())
+        db.execSQL("DELETE FROM category_stats")
+        db.execSQL("""
+            INSERT INTO category_stats (category, bookCount, completedCount)
+            SELECT category, COUNT(*), COALESCE(SUM(status = ${status.completed}), 0) FROM books GROUP BY category
+        """.trimIndent())
+    }
+
+    private fun seedSessionsSqlV12(source: String): List<String> {
+        val lastDay = "COALESCE(${epochDayV12("s.currentReadingStartDate")}, ${epochDayV12("s.endDate")}, $EPOCH_DAY_TODAY_V12)"
+        return listOf(
+            """
+            INSERT INTO reading_sessions (bookId, startEpochDay, endEpochDay)
+            SELECT s.id, $lastDay - s.totalReadingDays, $lastDay FROM ($source) s
+            WHERE s.totalReadingDays > 0
+            """.trimIndent(),
+            """
+            INSERT INTO reading_sessions (bookId, startEpochDay, endEpochDay)
+            SELECT s.id, COALESCE(${epochDayV12("s.currentReadingStartDate")}, $EPOCH_DAY_TODAY_V12), NULL FROM ($source) s
+            WHERE s.status = 1
+            """.trimIndent()
+        )
+    }
+
+    private val readingSessionTriggersV12 = listOf(
+        """
+        CREATE TRIGGER IF NOT EXISTS reading_sessions_after_insert AFTER INSERT ON books BEGIN
+            DELETE FROM reading_sessions WHERE bookId = NEW.id;
+            ${seedSessionsSqlV12(
+                "SELECT NEW.id AS id, NEW.status AS status, NEW.totalReadingDays AS totalReadingDays, " +
+                    "NEW.endDate AS endDate, NEW.currentReadingStartDate AS currentReadingStartDate"
+            ).joinToString(";\n", postfix = ";")}
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS reading_sessions_after_status
+        AFTER UPDATE OF status ON books WHEN OLD.status != NEW.status BEGIN
+            UPDATE reading_sessions SET endEpochDay = MAX(startEpochDay, $EPOCH_DAY_TODAY_V12)
+            WHERE bookId = NEW.id AND endEpochDay IS NULL;
+            INSERT INTO reading_sessions (bookId, startEpochDay, endEpochDay)
+            SELECT NEW.id, COALESCE(${epochDayV12("NEW.currentReadingStartDate")}, $EPOCH_DAY_TODAY_V12), NULL
+            WHERE NEW.status = 1;
+        END
+        """.trimIndent(),
+        """
+        CREATE TRIGGER IF NOT EXISTS reading_sessions_after_delete AFTER DELETE ON books BEGIN
+            DELETE FROM reading_sessions WHERE bookId = OLD.id;
+        END
+        """.trimIndent()
+    )
+}
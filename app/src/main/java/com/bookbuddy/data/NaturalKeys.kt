@@ -0,0 +1,36 @@
+package com.bookbuddy.data
+
+import java.text.Normalizer
+import java.util.Locale
+
+/**
+ * Duplicate-detection key for books: title plus primary author, case- and whitespace-folded.
+ * Stored in [Book.naturalKey] so imports can recognise books already in the library.
+ */
+object NaturalKeys {
+    private val WHITESPACE = Regex("\\s+")
+
+    // Unit separator, which cannot appear in either folded part
+    private const val SEPARATOR = '\u001F'
+
+    fun fold(text: String): String {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC)
+            .trim()
+            .replace(WHITESPACE, " ")
+            .lowercase(Locale.ROOT)
+    }
+
+    /**
+     * [authors] are the author1..author5 slots; [legacyAuthor] is the display author column,
+     * the only one filled for books imported from CSV.
+     */
+    fun of(name: String, legacyAuthor: String, authors: List<String?>): String {
+        val primaryAuthor = authors.firstOrNull { !it.isNullOrBlank() }
+            ?: legacyAuthor.substringBefore(',')
+        return fold(name) + SEPARATOR + fold(primaryAuthor)
+    }
+
+    fun of(book: Book): String {
+        return of(book.name, book.author, listOf(book.author1, book.author2, book.author3, book.author4, book.author5))
+    }
+}
@@ -0,0 +1,102 @@
+package com.bookbuddy.data
+
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+
+/**
+ * The top of the reading queue as last rendered, with the colors of its categories and its reading days.
+ * Shown on the next cold start until Room emits the real queue.
+ */
+data class QueueSnapshot(
+    val books: List<BookListItem>,
+    val categoryColors: Map<String, String>,
+    val readingDays: Map<Long, Int>
+)
+
+/**
+ * Reads and writes a [QueueSnapshot] as a small versioned binary file.
+ * Writes go to a temporary file that is renamed into place, so a reader never sees a partial file.
+ */
+class QueueSnapshotStore(private val file: File) {
+    companion object {
+        private const val VERSION = 3
+        private const val NO_DATE = -1L
+    }
+
+    fun read(): QueueSnapshot? {
+        if (!file.exists()) return null
+        return try {
+            DataInputStream(file.inputStream().buffered()).use { input ->
+                if (input.readInt() != VERSION) return null
+                val books = List(input.readInt()) {
+                    BookListItem(
+                        id = input.readLong(),
+                        rankKey = input.readLong(),
+                        ranking = input.readInt(),
+                        name = input.readUTF(),
+                        displayAuthor = input.readUTF(),
+                        category = input.readUTF(),
+                        hasBook = input.readBoolean(),
+                        status = BookStatus.valueOf(input.readUTF()),
+                        startDate = input.readLong().takeIf { it != NO_DATE },
+                        endDate = null,
+                        createdAt = input.readLong(),
+                        currentReadingStartDate = input.readLong().takeIf { it != NO_DATE }
+                    )
+                }
+                val colors = HashMap<String, String>()
+                repeat(input.readInt()) {
+                    colors[input.readUTF()] = input.readUTF()
+                }
+                val days = HashMap<Long, Int>()
+                repeat(input.readInt()) {
+                    days[input.readLong()] = input.readInt()
+                }
+                QueueSnapshot(books, colors, days)
+            }
+        } catch (e: Exception) {
+            // A stale or corrupt snapshot only costs the fast first frame
+            android.util.Log.w("BookBuddy", "Ignoring unreadable queue snapshot", e)
+            null
+        }
+    }
+
+    fun write(snapshot: QueueSnapshot) {
+        val temp = File(file.parentFile, file.name + ".tmp")
+        try {
+            DataOutputStream(temp.outputStream().buffered()).use { output ->
+                output.writeInt(VERSION)
+                output.writeInt(snapshot.books.size)
+                snapshot.books.forEach { book ->
+                    output.writeLong(book.id)
+                    output.writeLong(book.rankKey)
+                    output.writeInt(book.ranking)
+                    output.writeUTF(book.name)
+                    output.writeUTF(book.displayAuthor)
+                    output.writeUTF(book.category)
+                    output.writeBoolean(book.hasBook)
+                    output.writeUTF(book.status.name)
+                    output.writeLong(book.startDate ?: NO_DATE)
+                    output.writeLong(book.createdAt)
+                    output.writeLong(book.currentReadingStartDate ?: NO_DATE)
+                }
+                output.writeInt(snapshot.categoryColors.size)
+                snapshot.categoryColors.forEach { (name, hex) ->
+                    output.writeUTF(name)
+                    output.writeUTF(hex)
+                }
+                output.writeInt(snapshot.readingDays.size)
+                snapshot.readingDays.forEach { (bookId, days) ->
+                    output.writeLong(bookId)
+                    output.writeInt(days)
+                }
+            }
+            if (!temp.renameTo(file)) throw IOException("Could not replace ${file.name}")
+        } catch (e: IOException) {
+            android.util.Log.w("BookBuddy", "Could not save queue snapshot", e)
+            temp.delete()
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.bookbuddy.data
+
+/**
+ * Sparse ordering keys for the reading queue.
+ * Books are ordered by [Book.rankKey]; keys start [GAP] apart so a book can be moved by
+ * giving it a key between its new neighbours, without touching any other row.
+ */
+object RankKeys {
+    const val GAP = 1L shl 20
+
+    // Once neighbours get this close, the queue is spread out again in the background
+    const val MIN_GAP = 16L
+
+    /**
+     * Returns a key strictly between [before] and [after] (either may be null at the ends of the
+     * queue), or null if there is no room left between them.
+     */
+    fun between(before: Long?, after: Long?): Long? = when {
+        before == null && after == null -> GAP
+        before == null -> after!! - GAP
+        after == null -> before + GAP
+        after - before > 1 -> before + (after - before) / 2
+        else -> null
+    }
+
+    fun forPosition(position: Int): Long = position * GAP
+}
@@ -0,0 +1,64 @@
+package com.bookbuddy.data
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * One stretch of reading a book, in local calendar days. [endEpochDay] is null while the
+ * session is open, which is only the case while the book is IN_PROGRESS.
+ * Rows are maintained by the triggers in [DatabaseTriggers]; never write to this table directly.
+ */
+@Entity(
+    tableName = "reading_sessions",
+    indices = [Index(value = ["bookId"])]
+)
+data class ReadingSession(
+    @PrimaryKey(autoGenerate = true)
+    val id: Long = 0,
+    @ColumnInfo(name = "bookId")
+    val bookId: Long,
+    @ColumnInfo(name = "startEpochDay")
+    val startEpochDay: Long,
+    @ColumnInfo(name = "endEpochDay")
+    val endEpochDay: Long? = null
+)
+
+/**
+ * Days read per book, summed over its sessions; an open session counts up to the day passed in.
+ */
+data class ReadingTotal(
+    val bookId: Long,
+    val readingDays: Int
+)
+
+/**
+ * Day arithmetic in SQL, matching DateUtils.toEpochDay for the device time zone.
+ */
+object ReadingSessionSql {
+    const val TODAY_EPOCH_DAY = "CAST(julianday(date('now', 'localtime')) - 2440587.5 AS INTEGER)"
+
+    /**
+     * Reading days of every book that has any, with open sessions counted up to :todayEpochDay.
+     * Today is a parameter rather than SQL 'now' so a new day can re-run the query without a write.
+     */
+    const val READING_TOTALS = """
+        SELECT bookId, SUM(MAX(0, COALESCE(endEpochDay, :todayEpochDay) - startEpochDay)) AS readingDays
+        FROM reading_sessions
+        GROUP BY bookId
+        HAVING readingDays > 0
+    """
+
+    /**
+     * Days of the closed sessions of the book whose id is the expression [bookId]; what books.totalReadingDays holds.
+     */
+    fun closedDays(bookId: String): String =
+        "(SELECT COALESCE(SUM(endEpochDay - startEpochDay), 0) FROM reading_sessions WHERE bookId = $bookId AND endEpochDay IS NOT NULL)"
+
+    /**
+     * Local calendar day of the epoch-millis expression [millis]; NULL stays NULL.
+     */
+    fun epochDay(millis: String): String =
+        "CAST(julianday(date($millis / 1000, 'unixepoch', 'localtime')) - 2440587.5 AS INTEGER)"
+}
@@ -0,0 +1,14 @@
+package com.bookbuddy.data
+
+import androidx.room.*
+import kotlinx.coroutines.flow.Flow
+
+@Dao
+interface ReadingSessionDao {
+    /**
+     * Reading days of every book that has any, in one grouped pass over reading_sessions, with open
+     * sessions counted up to [todayEpochDay]. Only observes reading_sessions, so reorders and edits do not re-run it.
+     */
+    @Query(ReadingSessionSql.READING_TOTALS)
+    fun getReadingTotals(todayEpochDay: Long): Flow<List<ReadingTotal>>
+}
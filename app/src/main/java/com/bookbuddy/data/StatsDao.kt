@@ -0,0 +1,102 @@
+package com.bookbuddy.data
+
+import androidx.room.*
+import kotlinx.coroutines.flow.Flow
+
+/**
+ * Reads the trigger-maintained statistics tables. The only writes here are the
+ * rebuild in [checkAndRebuild].
+ */
+@Dao
+interface StatsDao {
+    @Query("""
+        SELECT
+            s.completedCount AS totalRead,
+            COALESCE((SELECT y.completedCount FROM yearly_stats y WHERE y.year = :year), 0) AS readThisYear,
+            s.inProgressCount AS inProgress,
+            s.queueCount AS queueSize
+        FROM library_stats s WHERE s.id = 0
+    """)
+    fun getDashboardStats(year: Int): Flow<DashboardStats?>
+
+    @Query("SELECT * FROM library_stats WHERE id = 0")
+    suspend fun getLibraryStatsSnapshot(): LibraryStats?
+
+    @Query("SELECT * FROM yearly_stats ORDER BY year ASC")
+    suspend fun getYearlyStatsSnapshot(): List<YearlyStats>
+
+    @Query("SELECT * FROM category_stats ORDER BY category ASC")
+    suspend fun getCategoryStatsSnapshot(): List<CategoryStats>
+
+    @Query(StatsSql.RECOMPUTE_LIBRARY_STATS)
+    suspend fun recomputeLibraryStats(): LibraryStats
+
+    @Query(StatsSql.RECOMPUTE_YEARLY_STATS + " ORDER BY year ASC")
+    suspend fun recomputeYearlyStats(): List<YearlyStats>
+
+    @Query(StatsSql.RECOMPUTE_CATEGORY_STATS + " ORDER BY category ASC")
+    suspend fun recomputeCategoryStats(): List<CategoryStats>
+
+    @Query("DELETE FROM library_stats")
+    suspend fun clearLibraryStats()
+
+    @Query("DELETE FROM yearly_stats")
+    suspend fun clearYearlyStats()
+
+    @Query("DELETE FROM category_stats")
+    suspend fun clearCategoryStats()
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertLibraryStats(stats: LibraryStats)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertYearlyStats(stats: List<YearlyStats>)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertCategoryStats(stats: List<CategoryStats>)
+
+    /**
+     * Compares the maintained counters with a full recomputation from books and, if they have
+     * drifted, replaces them with the recomputed values. Returns true if they already matched.
+     */
+    @Transaction
+    suspend fun checkAndRebuild(): Boolean {
+        val library = recomputeLibraryStats()
+        val years = recomputeYearlyStats()
+        val categories = recomputeCategoryStats()
+        val consistent = getLibraryStatsSnapshot() == library &&
+            getYearlyStatsSnapshot() == years &&
+            getCategoryStatsSnapshot() == categories
+        if (!consistent) {
+            clearLibraryStats()
+            clearYearlyStats()
+            clearCategoryStats()
+            insertLibraryStats(library)
+            insertYearlyStats(years)
+            insertCategoryStats(categories)
+        }
+        return consistent
+    }
+}
+
+/**
+ * Full recomputations of the statistics tables from books, shared by [StatsDao] and
+ * [DatabaseTriggers.rebuildStatistics].
+ */
+object StatsSql {
+    const val QUEUE_STATUSES = BookStatusCodes.QUEUE
+
+    // endDate is stored as epoch millis
+    const val END_YEAR = "CAST(strftime('%Y', endDate / 1000, 'unixepoch', 'localtime') AS INTEGER)"
+
+    const val RECOMPUTE_LIBRARY_STATS = "SELECT 0 AS id, COUNT(*) AS totalCount, " +
+        "COALESCE(SUM(status = ${BookStatusCodes.COMPLETED}), 0) AS completedCount, " +
+        "COALESCE(SUM(status = ${BookStatusCodes.IN_PROGRESS}), 0) AS inProgressCount, " +
+        "COALESCE(SUM(status IN " + QUEUE_STATUSES + "), 0) AS queueCount FROM books"
+
+    const val RECOMPUTE_YEARLY_STATS = "SELECT " + END_YEAR + " AS year, COUNT(*) AS completedCount FROM books " +
+        "WHERE status = ${BookStatusCodes.COMPLETED} AND endDate IS NOT NULL GROUP BY year"
+
+    const val RECOMPUTE_CATEGORY_STATS = "SELECT category, COUNT(*) AS bookCount, " +
+        "COALESCE(SUM(status = ${BookStatusCodes.COMPLETED}), 0) AS completedCount FROM books GROUP BY category"
+}
@@ -0,0 +1,15 @@
+package com.bookbuddy.data
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * Completed books per calendar year of endDate (device local time).
+ * Maintained by the triggers in [DatabaseTriggers]; years with no books have no row.
+ */
+@Entity(tableName = "yearly_stats")
+data class YearlyStats(
+    @PrimaryKey
+    val year: Int,
+    val completedCount: Int
+)
@@ -1,155 +1,283 @@
 package com.bookbuddy.repository
 
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
 import com.bookbuddy.data.*
+import com.bookbuddy.utils.CSVHelper
+import com.bookbuddy.utils.CategoryColorGenerator
+import com.bookbuddy.utils.DateUtils
+import com.bookbuddy.utils.FtsQuery
+import com.bookbuddy.utils.FtsRank
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.Flow
-import java.util.*
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.withContext
+import java.io.OutputStream
+import java.time.LocalDate
 
 class BookRepository(
     private val bookDao: BookDao,
-    private val categoryDao: CategoryDao
+    private val categoryDao: CategoryDao,
+    private val statsDao: StatsDao,
+    private val readingSessionDao: ReadingSessionDao
 ) {
-    fun getBooksToRead(): Flow<List<Book>> = bookDao.getBooksToRead()
-    fun getCompletedBooks(): Flow<List<Book>> = bookDao.getCompletedBooks()
-    fun getInProgressBooks(): Flow<List<Book>> = bookDao.getInProgressBooks()
-    fun getTotalBooksRead(): Flow<Int> = bookDao.getTotalBooksRead()
+    companion object {
+        private const val PAGE_SIZE = 50
+        private const val EXPORT_PAGE_SIZE = 500
+        private const val IMPORT_CHUNK_SIZE = 500
+
+        // books_fts columns: name, author
+        private val SEARCH_COLUMN_WEIGHTS = doubleArrayOf(3.0, 1.0)
+    }
+
+    fun getBooksToRead(): Flow<List<BookListItem>> = bookDao.getBooksToRead()
+
+    fun getCompletedBooksPaged(): Flow<PagingData<BookListItem>> =
+        Pager(pagingConfig()) { bookDao.getCompletedBooksPaged() }.flow
+
+    // Placeholders keep adapter positions absolute when maxSize drops pages, so position + 1 stays the rank
+    private fun pagingConfig() = PagingConfig(
+        pageSize = PAGE_SIZE,
+        prefetchDistance = PAGE_SIZE / 2,
+        enablePlaceholders = true,
+        maxSize = PAGE_SIZE * 6 // Drop pages far from the viewport to bound memory
+    )
+
+    /**
+     * Book id to days read, for books that have read at least one day.
+     * Re-queried when the local date changes, since open sessions count up to today.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    fun getReadingDays(): Flow<Map<Long, Int>> = DateUtils.todayEpochDays()
+        .flatMapLatest { today -> readingSessionDao.getReadingTotals(today) }
+        .map { totals -> totals.associateTo(HashMap(totals.size)) { it.bookId to it.readingDays } }
+
     fun getBooksInQueueCount(): Flow<Int> = bookDao.getBooksInQueueCount()
     fun getAllCategories(): Flow<List<Category>> = categoryDao.getAllCategories()
     fun getAllAuthors(): Flow<List<String>> = bookDao.getAllAuthors()
     fun getAllCategoriesForFilter(): Flow<List<String>> = bookDao.getAllCategoriesForFilter()
 
+
     suspend fun getBookById(id: Long): Book? = bookDao.getBookById(id)
-    suspend fun insertBook(book: Book): Long = bookDao.insertBook(book)
-    suspend fun updateBook(book: Book) = bookDao.updateBook(book)
-    suspend fun deleteBook(book: Book) {
-        bookDao.deleteBook(book)
-        // Re-rank remaining books to read
-        reRankBooksToRead()
-    }
 
-    suspend fun markAsInProgress(bookId: Long) {
-        val book = bookDao.getBookById(bookId)
-        if (book != null) {
-            val now = Date()
-            // If first time starting (no startDate), set it. Otherwise preserve original startDate
-            val startDate = book.startDate ?: now
-            bookDao.updateBookStatus(bookId, BookStatus.IN_PROGRESS, startDate)
-            // Set current reading start date (new session starts now)
-            // Preserve totalReadingDays (accumulated from previous sessions if any)
-            bookDao.updateReadingStatus(bookId, BookStatus.IN_PROGRESS, now, book.totalReadingDays)
+    /**
+     * Inserts a book; queue books are slotted in at [Book.ranking] without renumbering the others.
+     */
+    suspend fun insertBook(book: Book): Long {
+        val keyed = book.withNaturalKey()
+        return if (keyed.status == BookStatus.COMPLETED) {
+            bookDao.insertBook(keyed.copy(rankKey = RankKeys.forPosition(keyed.ranking)))
+        } else {
+            bookDao.insertAtPosition(keyed, keyed.ranking)
         }
     }
 
-    suspend fun markAsOnHold(bookId: Long) {
-        val book = bookDao.getBookById(bookId)
-        if (book != null && book.status == BookStatus.IN_PROGRESS) {
-            val now = Date()
-            // Calculate days from current reading session start to now
-            val daysToAdd = book.currentReadingStartDate?.let { startDate ->
-                calculateDaysBetween(startDate, now)
-            } ?: 0
-            // Add to total reading days (accumulate)
-            val newTotalDays = book.totalReadingDays + daysToAdd
-            // Clear current reading start date (paused), keep totalReadingDays
-            bookDao.updateReadingStatus(bookId, BookStatus.ON_HOLD, null, newTotalDays)
-        }
-    }
+    /**
+     * Imports [books] in chunks of [IMPORT_CHUNK_SIZE], one transaction (and so one list refresh)
+     * per chunk, emitting running totals after each. A row whose natural key matches a book in
+     * the library, or an earlier row of the same import, is handled according to [mode]; the
+     * existing keys are loaded once into a hash map, so each lookup is O(1). Missing categories
+     * are created from one lookup of the existing names. New queue books go after the current
+     * queue, keeping their relative [Book.ranking] order. Cancelling the collector stops after
+     * the current chunk. A completed import ends with a statistics consistency check, the one
+     * bulk write path where the O(n) recomputation is worth it.
+     */
+    fun importBooks(books: Sequence<Book>, mode: ImportMode): Flow<ImportCounts> = flow {
+        val queueBase = bookDao.getMaxQueueRankKey(excludeId = 0) ?: 0L
+        val knownCategories = HashSet(categoryDao.getAllCategoryNames())
+        val idsByKey = HashMap<String, Long>()
+        bookDao.getNaturalKeys().forEach { idsByKey.putIfAbsent(it.naturalKey, it.id) }
+        var counts = ImportCounts()
+
+        for (chunk in books.chunked(IMPORT_CHUNK_SIZE)) {
+            val inserts = LinkedHashMap<String, Book>()
+            val matches = ArrayList<Pair<Long, Book>>()
+            for (incoming in chunk) {
+                val book = incoming.withNaturalKey()
+                val existingId = idsByKey[book.naturalKey]
+                val pending = inserts[book.naturalKey]
+                when {
+                    existingId != null -> matches.add(existingId to book)
+                    pending != null -> inserts[book.naturalKey] = resolveDuplicate(mode, pending, book)
+                    else -> inserts[book.naturalKey] = book
+                }
+            }
+
+            // Fold all rows matching the same stored book into one update
+            val current = bookDao.getBooksByIds(matches.map { it.first }.distinct()).associateByTo(HashMap()) { it.id }
+            val originals = HashMap(current)
+            for ((id, book) in matches) {
+                current[id]?.let { current[id] = resolveDuplicate(mode, it, book) }
+            }
+            val updates = current.values.filter { it != originals[it.id] }
+
+            val written = inserts.values + updates
+            val newCategories = written.map { it.category }.filter { it.isNotEmpty() && knownCategories.add(it) }
+            if (newCategories.isNotEmpty()) {
+                categoryDao.insertCategories(newCategories.map { name ->
+                    Category(name = name, colorHex = CategoryColorGenerator.generateColorForCategory(name))
+                })
+            }
 
-    suspend fun markAsCompleted(bookId: Long) {
-        val book = bookDao.getBookById(bookId)
-        if (book != null) {
-            val now = Date()
-            // If currently reading, add current session days to total
-            val daysToAdd = if (book.status == BookStatus.IN_PROGRESS && book.currentReadingStartDate != null) {
-                calculateDaysBetween(book.currentReadingStartDate!!, now)
-            } else {
-                0
+            val newBooks = inserts.values.map { book ->
+                val key = RankKeys.forPosition(book.ranking.coerceAtLeast(1))
+                book.copy(rankKey = if (book.status == BookStatus.COMPLETED) key else queueBase + key)
             }
-            val finalTotalDays = book.totalReadingDays + daysToAdd
-            // Update total reading days and clear current session before marking as completed
-            bookDao.updateReadingStatus(bookId, BookStatus.COMPLETED, null, finalTotalDays)
-            bookDao.markAsCompleted(bookId, BookStatus.COMPLETED, now)
-            // Re-rank remaining books to read
-            reRankBooksToRead()
+            val newIds = bookDao.importChunk(newBooks, updates)
+            newBooks.forEachIndexed { index, book -> idsByKey[book.naturalKey] = newIds[index] }
+
+            counts = counts.copy(
+                added = counts.added + newBooks.size,
+                updated = counts.updated + updates.size,
+                skipped = counts.skipped + chunk.size - newBooks.size - updates.size
+            )
+            emit(counts)
         }
-    }
 
-    private fun calculateDaysBetween(start: Date, end: Date): Int {
-        val calendar = Calendar.getInstance()
-        val startCal = Calendar.getInstance().apply { time = start }
-        val endCal = Calendar.getInstance().apply { time = end }
-        
-        // Reset to midnight for accurate day calculation
-        startCal.set(Calendar.HOUR_OF_DAY, 0)
-        startCal.set(Calendar.MINUTE, 0)
-        startCal.set(Calendar.SECOND, 0)
-        startCal.set(Calendar.MILLISECOND, 0)
-        
-        endCal.set(Calendar.HOUR_OF_DAY, 0)
-        endCal.set(Calendar.MINUTE, 0)
-        endCal.set(Calendar.SECOND, 0)
-        endCal.set(Calendar.MILLISECOND, 0)
-        
-        val diffInMillis = endCal.timeInMillis - startCal.timeInMillis
-        return (diffInMillis / (24 * 60 * 60 * 1000)).toInt().coerceAtLeast(0)
-    }
+        if (!statsDao.checkAndRebuild()) {
+            android.util.Log.w("BookBuddy", "Statistics were out of date after import and have been rebuilt")
+        }
+    }.flowOn(Dispatchers.IO)
 
-    suspend fun getBooksToReadFiltered(author: String?, category: String?, titleSearch: String?, sortBy: String): List<Book> {
-        val books = bookDao.getBooksToReadFiltered(
-            if (author.isNullOrBlank()) null else author,
-            if (category.isNullOrBlank()) null else category,
-            if (titleSearch.isNullOrBlank()) null else titleSearch
+    /**
+     * Combines a stored (or pending) book with an imported row that has the same natural key.
+     */
+    private fun resolveDuplicate(mode: ImportMode, existing: Book, incoming: Book): Book = when (mode) {
+        ImportMode.SKIP -> existing
+        ImportMode.MERGE -> existing.copy(
+            category = existing.category.ifBlank { incoming.category },
+            hasBook = existing.hasBook || incoming.hasBook,
+            startDate = existing.startDate ?: incoming.startDate,
+            endDate = existing.endDate ?: incoming.endDate
         )
-        // Sort the results
-        return when (sortBy) {
-            "date_asc" -> books.sortedBy { it.createdAt }
-            "date_desc" -> books.sortedByDescending { it.createdAt }
-            else -> books.sortedBy { it.ranking } // Default: by ranking
+        ImportMode.UPSERT -> {
+            // CSV rows carry only the display author, so keep the stored author slots unless the row has its own.
+            // Reading days of a stored book come from its reading_sessions, not from the file.
+            val hasAuthorSlots = incoming.getAllAuthors().isNotEmpty()
+            incoming.copy(
+                id = existing.id,
+                ranking = existing.ranking,
+                rankKey = existing.rankKey,
+                totalReadingDays = existing.totalReadingDays,
+                author1 = if (hasAuthorSlots) incoming.author1 else existing.author1,
+                author2 = if (hasAuthorSlots) incoming.author2 else existing.author2,
+                author3 = if (hasAuthorSlots) incoming.author3 else existing.author3,
+                author4 = if (hasAuthorSlots) incoming.author4 else existing.author4,
+                author5 = if (hasAuthorSlots) incoming.author5 else existing.author5
+            )
+        }
+    }
+
+    // An edited ranking is a move to that queue position
+    suspend fun updateBook(book: Book) = bookDao.updateBookAndMove(book.withNaturalKey())
+
+    // Removing a book leaves a gap in rankKey, which needs no renumbering
+    suspend fun deleteBook(bookId: Long) = bookDao.deleteBookById(bookId)
+
+    suspend fun getQueuePosition(bookId: Long): Int = bookDao.getQueuePosition(bookId)
+
+    suspend fun markAsInProgress(bookId: Long) = transition(bookId, BookStatus.IN_PROGRESS)
+
+    suspend fun markAsOnHold(bookId: Long) = transition(bookId, BookStatus.ON_HOLD)
+
+    suspend fun markAsCompleted(bookId: Long) = transition(bookId, BookStatus.COMPLETED)
+
+    /**
+     * One atomic UPDATE per status change. Returns false, leaving the book untouched, if it is
+     * missing or its current status cannot move to [to] (e.g. a repeated tap on an old row).
+     */
+    private suspend fun transition(bookId: Long, to: BookStatus): Boolean {
+        val changed = bookDao.transition(
+            bookId,
+            to.allowedFrom,
+            to,
+            now = System.currentTimeMillis()
+        ) > 0
+        if (!changed) {
+            android.util.Log.d("BookBuddy", "Ignored status change of book $bookId to $to")
         }
+        return changed
     }
 
-    suspend fun getAllBooks(): List<Book> = bookDao.getAllBooks()
-
-    suspend fun getBooksReadThisYear(): Int {
-        val calendar = Calendar.getInstance()
-        calendar.set(Calendar.MONTH, Calendar.JANUARY)
-        calendar.set(Calendar.DAY_OF_MONTH, 1)
-        calendar.set(Calendar.HOUR_OF_DAY, 0)
-        calendar.set(Calendar.MINUTE, 0)
-        calendar.set(Calendar.SECOND, 0)
-        calendar.set(Calendar.MILLISECOND, 0)
-        val startOfYear = Date(calendar.timeInMillis)
-        val allCompleted = bookDao.getAllCompletedBooks()
-        return allCompleted.count { book ->
-            book.endDate != null && book.endDate!! >= startOfYear
+    /**
+     * The queue with [filter] applied in SQL, re-emitted when books change. With a search term the
+     * hits are most relevant first (BM25 over the FTS4 matchinfo, title hits weighted above author
+     * hits), ties in [BookQueueFilter.sortBy] order.
+     */
+    fun getBooksToReadFiltered(filter: BookQueueFilter): Flow<List<BookListItem>> {
+        if (filter.search.isBlank()) return bookDao.getBooksToReadFiltered(BookQueueQuery.build(filter))
+        // Search text with no searchable terms matches nothing
+        val match = FtsQuery.prefixMatch(filter.search) ?: return flowOf(emptyList())
+        val tieBreak: Comparator<BookListItem> = when (filter.sortBy) {
+            BookQueueFilter.SORT_DATE_ASC -> compareBy { it.createdAt }
+            BookQueueFilter.SORT_DATE_DESC -> compareByDescending { it.createdAt }
+            else -> compareBy { it.rankKey }
         }
+        return bookDao.searchQueue(BookQueueQuery.buildSearch(filter, match)).map { hits ->
+            hits.map { it.book to FtsRank.bm25(it.matchInfo, SEARCH_COLUMN_WEIGHTS) }
+                .sortedWith(compareByDescending<Pair<BookListItem, Double>> { it.second }.thenBy(tieBreak) { it.first })
+                .map { it.first }
+        }.flowOn(Dispatchers.Default)
     }
 
-    suspend fun calculateRunRate(): Double {
-        val completedBooks = bookDao.getAllCompletedBooks()
-        if (completedBooks.isEmpty()) return 0.0
-
-        val calendar = Calendar.getInstance()
-        val currentYear = calendar.get(Calendar.YEAR)
-        val currentDayOfYear = calendar.get(Calendar.DAY_OF_YEAR)
-        
-        // Check if current year is a leap year
-        val isLeapYear = (currentYear % 4 == 0 && currentYear % 100 != 0) || (currentYear % 400 == 0)
-        val totalDaysInYear = if (isLeapYear) 366 else 365
-
-        val booksThisYear = completedBooks.count { book ->
-            book.endDate?.let { endDate ->
-                val bookCalendar = Calendar.getInstance().apply { time = endDate }
-                bookCalendar.get(Calendar.YEAR) == currentYear
-            } ?: false
+    /**
+     * Streams every book to [outputStream] as CSV, a keyset page at a time, so memory use does not
+     * grow with the library. The queue is written first in queue order with its live positions as
+     * ranking, then the completed books. [onProgress] gets (written, total) after each page.
+     * Runs on [Dispatchers.IO]; returns the number of books written.
+     */
+    suspend fun exportBooks(outputStream: OutputStream, onProgress: (Int, Int) -> Unit): Int = withContext(Dispatchers.IO) {
+        val total = statsDao.getLibraryStatsSnapshot()?.totalCount ?: 0
+        var written = 0
+        val writer = CSVHelper.openWriter(outputStream)
+        CSVHelper.writeHeader(writer)
+
+        var afterRankKey = Long.MIN_VALUE
+        var afterId = 0L
+        while (true) {
+            val page = bookDao.getQueuePageAfter(afterRankKey, afterId, EXPORT_PAGE_SIZE)
+            if (page.isEmpty()) break
+            page.forEach { book ->
+                written++
+                CSVHelper.writeBook(writer, book, ranking = written)
+            }
+            afterRankKey = page.last().rankKey
+            afterId = page.last().id
+            onProgress(written, maxOf(total, written))
         }
 
-        return if (currentDayOfYear > 0) {
-            (booksThisYear.toDouble() / currentDayOfYear) * totalDaysInYear
-        } else {
-            0.0
+        afterId = 0L
+        while (true) {
+            val page = bookDao.getCompletedPageAfter(afterId, EXPORT_PAGE_SIZE)
+            if (page.isEmpty()) break
+            page.forEach { CSVHelper.writeBook(writer, it) }
+            written += page.size
+            afterId = page.last().id
+            onProgress(written, maxOf(total, written))
         }
+
+        writer.flush()
+        written
     }
 
+    /**
+     * Dashboard counters for the current calendar year, read from the trigger-maintained statistics tables.
+     * The year is re-read as the date changes, so a long-lived collector moves on at New Year.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    fun getDashboardStats(): Flow<DashboardStats> = DateUtils.todayEpochDays()
+        .map { LocalDate.ofEpochDay(it).year }
+        .distinctUntilChanged()
+        .flatMapLatest { year -> statsDao.getDashboardStats(year) }
+        .map { it ?: DashboardStats(0, 0, 0, 0) }
+
     suspend fun insertCategory(category: Category): Long = categoryDao.insertCategory(category)
     suspend fun updateCategory(category: Category) = categoryDao.updateCategory(category)
     suspend fun deleteCategory(category: Category) = categoryDao.deleteCategory(category)
@@ -175,52 +303,26 @@ class BookRepository(
         }
     }
 
-    suspend fun updateBookRankings(books: List<Book>) {
-        // Update all rankings in a transaction
-        books.forEachIndexed { index, book ->
-            bookDao.updateRanking(book.id, index + 1)
-        }
-    }
-
-    suspend fun reorderBook(fromPosition: Int, toPosition: Int, books: List<Book>) {
-        if (fromPosition == toPosition || fromPosition < 0 || toPosition < 0 || 
+    /**
+     * Moves the book at [fromPosition] to [toPosition] of [books] (the list as shown before the move)
+     * by giving it a rankKey between its new neighbours. Only the moved row is written.
+     * Returns true if the queue is running out of room between keys and should be rebalanced.
+     */
+    suspend fun reorderBook(fromPosition: Int, toPosition: Int, books: List<BookListItem>): Boolean {
+        if (fromPosition == toPosition || fromPosition < 0 || toPosition < 0 ||
             fromPosition >= books.size || toPosition >= books.size) {
-            return
+            return false
         }
 
-        // Create a mutable copy of the list
-        val reorderedBooks = books.toMutableList()
-        val movedBook = reorderedBooks.removeAt(fromPosition)
-        reorderedBooks.add(toPosition, movedBook)
-
-        // Update all rankings based on new positions
-        reorderedBooks.forEachIndexed { index, book ->
-            val newRanking = index + 1
-            if (book.ranking != newRanking) {
-                bookDao.updateRanking(book.id, newRanking)
-            }
+        val reordered = books.toMutableList().apply { add(toPosition, removeAt(fromPosition)) }
+        val before = reordered.getOrNull(toPosition - 1)
+        val after = reordered.getOrNull(toPosition + 1)
+        if (before != null && after != null && before.rankKey >= after.rankKey) {
+            // The list is not in queue order (e.g. sorted by date), so there is no queue slot to move into
+            return false
         }
+        return bookDao.moveBetween(reordered[toPosition].id, before?.id, after?.id)
     }
 
-    /**
-     * Re-ranks all books to read (NOT_STARTED, IN_PROGRESS, ON_HOLD) sequentially starting from 1
-     * This is called after a book is deleted or marked as completed
-     */
-    private suspend fun reRankBooksToRead() {
-        // Get all books that should be in the "to read" list
-        // This includes NOT_STARTED, IN_PROGRESS, and ON_HOLD (but not COMPLETED)
-        val allBooks = bookDao.getAllBooks()
-        val booksToRead = allBooks
-            .filter { it.status != BookStatus.COMPLETED }
-            .sortedBy { it.ranking } // Sort by current ranking to maintain order
-        
-        // Re-assign rankings sequentially starting from 1
-        booksToRead.forEachIndexed { index, book ->
-            val newRanking = index + 1
-            if (book.ranking != newRanking) {
-                bookDao.updateRanking(book.id, newRanking)
-            }
-        }
-    }
+    suspend fun rebalanceQueue() = bookDao.rebalanceQueue()
 }
-
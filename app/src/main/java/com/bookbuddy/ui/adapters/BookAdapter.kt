@@ -1,45 +1,157 @@
 package com.bookbuddy.ui.adapters
 
 import android.view.LayoutInflater
-import android.view.View
 import android.view.ViewGroup
-import android.widget.ImageButton
-import android.widget.ImageView
-import android.widget.TextView
-import androidx.core.content.ContextCompat
+import androidx.recyclerview.widget.AsyncDifferConfig
+import androidx.recyclerview.widget.AsyncListDiffer
 import androidx.recyclerview.widget.DiffUtil
-import androidx.recyclerview.widget.ListAdapter
+import androidx.recyclerview.widget.ListUpdateCallback
 import androidx.recyclerview.widget.RecyclerView
 import com.bookbuddy.R
-import com.bookbuddy.data.Book
-import com.bookbuddy.data.BookStatus
-import java.text.SimpleDateFormat
-import java.util.*
+import com.bookbuddy.data.BookListItem
 
+/**
+ * List adapter for the reading queue. Works like a ListAdapter, but owns its [AsyncListDiffer] so
+ * a drag can move rows with notifyItemMoved and then hand the dragged order to the differ without
+ * the differ replaying those moves (see [startDrag]).
+ */
 class BookAdapter(
-    private val onEditClick: (Book) -> Unit,
-    private val onMarkInProgressClick: (Book) -> Unit,
-    private val onMarkOnHoldClick: (Book) -> Unit,
-    private val showActionButtons: Boolean = true,
-    private val enableDrag: Boolean = false,
-    val onItemMoved: ((Int, Int) -> Unit)? = null
-) : ListAdapter<Book, BookAdapter.BookViewHolder>(BookDiffCallback()) {
+    override val onEditClick: (BookListItem) -> Unit,
+    override val onMarkInProgressClick: (BookListItem) -> Unit,
+    override val onMarkOnHoldClick: (BookListItem) -> Unit,
+    override val showActionButtons: Boolean = true,
+    override val enableDrag: Boolean = false
+) : RecyclerView.Adapter<BookViewHolder>(), BookViewHolder.Host {
+
+    // Order on screen while a drag is live or being committed; null otherwise
+    private var dragOrder: MutableList<BookListItem>? = null
+
+    // Latest list submitted during a drag, applied once the drag is committed
+    private var pendingList: List<BookListItem>? = null
+
+    // True while the differ applies the dragged order, whose moves are already on screen
+    private var committingDrag = false
+
+    private val differ = AsyncListDiffer(
+        object : ListUpdateCallback {
+            override fun onInserted(position: Int, count: Int) {
+                if (!committingDrag) notifyItemRangeInserted(position, count)
+            }
+
+            override fun onRemoved(position: Int, count: Int) {
+                if (!committingDrag) notifyItemRangeRemoved(position, count)
+            }
+
+            override fun onMoved(fromPosition: Int, toPosition: Int) {
+                if (!committingDrag) notifyItemMoved(fromPosition, toPosition)
+            }
+
+            override fun onChanged(position: Int, count: Int, payload: Any?) {
+                if (!committingDrag) notifyItemRangeChanged(position, count, payload)
+            }
+        },
+        AsyncDifferConfig.Builder(BookDiffCallback()).build()
+    ).apply {
+        addListListener { previousList, currentList -> refreshShiftedRanks(previousList, currentList) }
+    }
+
+    /**
+     * The books as shown, including any drag in progress.
+     */
+    val currentList: List<BookListItem>
+        get() = dragOrder ?: differ.currentList
+
+    /**
+     * Diffs [list] against the current list off the main thread, like ListAdapter.submitList.
+     * During a drag the list is held back and applied after the drop.
+     */
+    fun submitList(list: List<BookListItem>?) {
+        if (dragOrder != null) {
+            pendingList = list
+            return
+        }
+        differ.submitList(list)
+    }
+
+    override fun getItemCount(): Int = currentList.size
+
+    private fun getItem(position: Int): BookListItem = currentList[position]
+
+    /**
+     * Starts a drag: until [endDrag], [moveItem] reorders the rows in memory only.
+     */
+    fun startDrag() {
+        if (dragOrder == null) {
+            dragOrder = differ.currentList.toMutableList()
+        }
+    }
+
+    /**
+     * Moves one row during a drag and refreshes the ranks of the rows it passed.
+     * Returns false if no drag is live or a position is out of range.
+     */
+    fun moveItem(fromPosition: Int, toPosition: Int): Boolean {
+        val order = dragOrder ?: return false
+        if (fromPosition !in order.indices || toPosition !in order.indices) return false
+        order.add(toPosition, order.removeAt(fromPosition))
+        notifyItemMoved(fromPosition, toPosition)
+        val first = minOf(fromPosition, toPosition)
+        notifyItemRangeChanged(first, maxOf(fromPosition, toPosition) - first + 1, BookViewHolder.Payload.RANK)
+        return true
+    }
+
+    /**
+     * Ends a drag: the differ takes the dragged order as its list without re-dispatching the
+     * moves already made, then any list submitted during the drag is applied.
+     */
+    fun endDrag() {
+        val order = dragOrder ?: return
+        committingDrag = true
+        differ.submitList(order.toList()) {
+            committingDrag = false
+            dragOrder = null
+            pendingList?.let {
+                pendingList = null
+                differ.submitList(it)
+            }
+        }
+    }
 
     // Track expanded position (only one at a time)
     private var expandedBookId: Long? = null
     
-    // Map of category name to color hex
-    private val categoryColorMap = mutableMapOf<String, String>()
+    // Parsed category colors
+    private val categoryStyles = CategoryStyleCache()
     
     /**
-     * Update the category color map
+     * Update the category color map. Only rows whose category color actually changed are rebound.
      */
     fun updateCategoryColors(categories: Map<String, String>) {
-        categoryColorMap.clear()
-        categoryColorMap.putAll(categories)
-        notifyDataSetChanged() // Refresh all items to apply new colors
+        val changed = categoryStyles.update(categories)
+        if (changed.isEmpty()) return
+        currentList.forEachIndexed { position, book ->
+            if (book.category in changed) {
+                notifyItemChanged(position, BookViewHolder.Payload.CATEGORY_COLOR)
+            }
+        }
     }
     
+    // Book id to days read, from the reading_sessions aggregate; absent means none
+    private var readingDays: Map<Long, Int> = emptyMap()
+
+    /**
+     * Update the reading days per book. Only rows whose count changed are rebound.
+     */
+    fun updateReadingDays(days: Map<Long, Int>) {
+        val previous = readingDays
+        readingDays = days
+        currentList.forEachIndexed { position, book ->
+            if (previous[book.id] != days[book.id]) {
+                notifyItemChanged(position, BookViewHolder.Payload.STATUS)
+            }
+        }
+    }
+
     // Track swiped items (bookId to swipe direction)
     private val swipedItems = mutableMapOf<Long, SwipeDirection>()
     
@@ -62,330 +174,63 @@ class BookAdapter(
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): BookViewHolder {
         val view = LayoutInflater.from(parent.context)
             .inflate(R.layout.item_book, parent, false)
-        return BookViewHolder(view)
+        return BookViewHolder(view, this)
     }
 
     override fun onBindViewHolder(holder: BookViewHolder, position: Int) {
         val book = getItem(position)
         val swipeState = swipedItems[book.id]
-        holder.bind(book, expandedBookId == book.id, swipeState)
+        holder.bind(book, position + 1, expandedBookId == book.id, swipeState)
     }
 
-    inner class BookViewHolder(itemView: View) : RecyclerView.ViewHolder(itemView) {
-        private val tvRanking: TextView = itemView.findViewById(R.id.tvRanking)
-        private val tvBookName: TextView = itemView.findViewById(R.id.tvBookName)
-        private val tvAuthor: TextView = itemView.findViewById(R.id.tvAuthor)
-        private val tvCategory: TextView = itemView.findViewById(R.id.tvCategory)
-        private val ivCategory: ImageView = itemView.findViewById(R.id.ivCategory)
-        private val ivHasBook: ImageView = itemView.findViewById(R.id.ivHasBook)
-        private val tvAddedSince: TextView = itemView.findViewById(R.id.tvAddedSince)
-        private val tvReadingSince: TextView = itemView.findViewById(R.id.tvReadingSince)
-        private val ivStatus: ImageView = itemView.findViewById(R.id.ivStatus)
-        private val tvStartDate: TextView = itemView.findViewById(R.id.tvStartDate)
-        private val tvEndDate: TextView = itemView.findViewById(R.id.tvEndDate)
-        private val llDateInfo: View = itemView.findViewById(R.id.llDateInfo)
-        private val btnEdit: ImageButton = itemView.findViewById(R.id.btnEdit)
-        private val btnMarkInProgress: ImageButton = itemView.findViewById(R.id.btnMarkInProgress)
-        private val btnMarkOnHold: ImageButton = itemView.findViewById(R.id.btnMarkOnHold)
-        private val progressBar: android.widget.ProgressBar = itemView.findViewById(R.id.progressBar)
-        private val cardView: com.google.android.material.card.MaterialCardView = itemView as com.google.android.material.card.MaterialCardView
-        private val ivDragHandle: ImageView = itemView.findViewById(R.id.ivDragHandle)
-        private val llExpandedDetails: View = itemView.findViewById(R.id.llExpandedDetails)
-        private val tvExpandedBookName: TextView = itemView.findViewById(R.id.tvExpandedBookName)
-        private val tvExpandedAuthor: TextView = itemView.findViewById(R.id.tvExpandedAuthor)
-        private val mainContentLayout: View = itemView.findViewById(R.id.mainContentLayout)
-
-        private val dateFormat = SimpleDateFormat("MMM dd", Locale.getDefault())
-
-        private fun calculateDaysSince(date: Date): Int {
-            val now = Calendar.getInstance()
-            val then = Calendar.getInstance().apply { time = date }
-            
-            // Reset time to midnight for accurate day calculation
-            now.set(Calendar.HOUR_OF_DAY, 0)
-            now.set(Calendar.MINUTE, 0)
-            now.set(Calendar.SECOND, 0)
-            now.set(Calendar.MILLISECOND, 0)
-            
-            then.set(Calendar.HOUR_OF_DAY, 0)
-            then.set(Calendar.MINUTE, 0)
-            then.set(Calendar.SECOND, 0)
-            then.set(Calendar.MILLISECOND, 0)
-            
-            val diffInMillis = now.timeInMillis - then.timeInMillis
-            return (diffInMillis / (24 * 60 * 60 * 1000)).toInt()
+    override fun onBindViewHolder(holder: BookViewHolder, position: Int, payloads: MutableList<Any>) {
+        val parts = mergePayloads(payloads)
+        if (parts == null) {
+            onBindViewHolder(holder, position)
+            return
         }
+        val book = getItem(position)
+        holder.bindPayloads(book, position + 1, expandedBookId == book.id, swipedItems[book.id], parts)
+    }
 
-        fun bind(book: Book, isExpanded: Boolean, swipeState: SwipeDirection?) {
-            tvRanking.text = book.ranking.toString()
-            tvBookName.text = book.name
-            // Display all authors (use helper function)
-            tvAuthor.text = book.getDisplayAuthor()
-            tvCategory.text = book.category
-            
-            // Set ranking background color based on category
-            val categoryColor = categoryColorMap[book.category] 
-                ?: com.bookbuddy.utils.CategoryColorGenerator.generateColorForCategory(book.category)
-            
-            // Create a drawable with the category color
-            val colorDrawable = android.graphics.drawable.GradientDrawable().apply {
-                shape = android.graphics.drawable.GradientDrawable.OVAL
-                setColor(android.graphics.Color.parseColor(categoryColor))
-            }
-            tvRanking.background = colorDrawable
-            
-            // Set expanded details
-            tvExpandedBookName.text = book.name
-            tvExpandedAuthor.text = book.author
-            
-            // Handle expansion state
-            llExpandedDetails.visibility = if (isExpanded) View.VISIBLE else View.GONE
-            
-            // Set button click listeners FIRST - these must always work
-            // Make sure buttons are always clickable regardless of expansion state
-            btnEdit.isClickable = true
-            btnEdit.isFocusable = true
-            btnEdit.setOnClickListener { onEditClick(book) }
-            
-            // Set up play/resume button (only shown for NOT_STARTED and ON_HOLD)
-            btnMarkInProgress.isClickable = true
-            btnMarkInProgress.isFocusable = true
-            btnMarkInProgress.setOnClickListener { onMarkInProgressClick(book) }
-            
-            // Set up pause button (only shown for IN_PROGRESS)
-            btnMarkOnHold.isClickable = true
-            btnMarkOnHold.isFocusable = true
-            btnMarkOnHold.setOnClickListener { onMarkOnHoldClick(book) }
-            
-            // Initially hide all status buttons - they'll be shown based on book status below
-            btnMarkInProgress.visibility = View.GONE
-            btnMarkOnHold.visibility = View.GONE
-            
-            // Helper function to toggle expansion
-            val toggleExpansion = {
-                // Check current expanded state from adapter (not the captured value)
-                val currentlyExpanded = this@BookAdapter.expandedBookId == book.id
-                
-                // Toggle expansion - if clicking the same card, collapse it
-                val newExpandedState = !currentlyExpanded
-                
-                // Store the previously expanded book ID before updating
-                val previouslyExpandedId = this@BookAdapter.expandedBookId
-                
-                // Update expanded state
-                this@BookAdapter.expandedBookId = if (newExpandedState) book.id else null
-                
-                // If a different card was expanded, collapse it first
-                if (previouslyExpandedId != null && previouslyExpandedId != book.id) {
-                    // Find the position of the previously expanded item and notify it to update
-                    val previousPosition = this@BookAdapter.currentList.indexOfFirst { it.id == previouslyExpandedId }
-                    if (previousPosition >= 0) {
-                        this@BookAdapter.notifyItemChanged(previousPosition)
-                    }
-                }
-                
-                // Animate the expansion/collapse of current card
-                // Don't notify adapter for same card - just animate directly
-                if (newExpandedState) {
-                    llExpandedDetails.visibility = View.VISIBLE
-                    llExpandedDetails.alpha = 0f
-                    llExpandedDetails.animate()
-                        .alpha(1f)
-                        .setDuration(200)
-                        .start()
-                } else {
-                    llExpandedDetails.animate()
-                        .alpha(0f)
-                        .setDuration(200)
-                        .withEndAction {
-                            llExpandedDetails.visibility = View.GONE
-                        }
-                        .start()
-                }
-            }
-            
-            // Set click listener only on the book info area (not buttons)
-            val bookInfoArea = itemView.findViewById<ViewGroup>(R.id.bookInfoArea)
-            bookInfoArea?.setOnClickListener { toggleExpansion() }
-            
-            // Also allow clicking on the expanded section to collapse
-            // Make sure it doesn't block button clicks
-            llExpandedDetails.setOnClickListener { toggleExpansion() }
-            llExpandedDetails.isClickable = true
-            llExpandedDetails.isFocusable = false
-            
-            // Ensure buttons layout doesn't intercept clicks
-            val buttonsLayout = itemView.findViewById<ViewGroup>(R.id.buttonsLayout)
-            buttonsLayout?.isClickable = false
-            buttonsLayout?.isFocusable = false
-            // Don't set click listener on buttonsLayout - individual buttons handle their own clicks
-            
-            // Set has book icon - green border with checkmark if owned, gray border with X if not
-            if (book.hasBook) {
-                ivHasBook.setImageResource(R.drawable.ic_book_owned)
-                ivHasBook.clearColorFilter() // No color filter needed, drawable has colors
-                ivHasBook.alpha = 1.0f
-            } else {
-                ivHasBook.setImageResource(R.drawable.ic_book_not_owned)
-                ivHasBook.clearColorFilter() // No color filter needed, drawable has colors
-                ivHasBook.alpha = 1.0f
-            }
-            
-            // Calculate and display "Added since X days"
-            val daysSinceAdded = calculateDaysSince(book.createdAt)
-            tvAddedSince.text = when {
-                daysSinceAdded == 0 -> "Added today"
-                daysSinceAdded == 1 -> "Added 1 day ago"
-                else -> "Added $daysSinceAdded days ago"
-            }
+    /**
+     * The rank shown is the row position, so rows that only shifted because another book moved,
+     * was added or was removed need their rank refreshed even though DiffUtil sees them as unchanged.
+     */
+    private fun refreshShiftedRanks(previousList: List<BookListItem>, currentList: List<BookListItem>) {
+        val size = minOf(previousList.size, currentList.size)
+        var first = 0
+        while (first < size && previousList[first].id == currentList[first].id) first++
+        if (first == currentList.size) return
+        var last = currentList.size - 1
+        if (previousList.size == currentList.size) {
+            while (last > first && previousList[last].id == currentList[last].id) last--
+        }
+        notifyItemRangeChanged(first, last - first + 1, BookViewHolder.Payload.RANK)
+    }
 
-            // Check if this item is in a swiped state (swipe colors take priority over status colors)
-            val isSwiped = swipeState != null && swipeState != SwipeDirection.NONE
-            
-            // Set progress bar and border/background based on book status
-            when (book.status) {
-                BookStatus.IN_PROGRESS -> {
-                    progressBar.visibility = View.VISIBLE
-                    progressBar.progress = 100 // Show full green bar when reading
-                    cardView.strokeWidth = 3
-                    cardView.strokeColor = ContextCompat.getColor(itemView.context, R.color.primary)
-                    // Set background - swipe color takes priority
-                    if (!isSwiped) {
-                        cardView.setCardBackgroundColor(ContextCompat.getColor(itemView.context, R.color.card_background))
-                    }
-                }
-                BookStatus.ON_HOLD -> {
-                    progressBar.visibility = View.GONE
-                    cardView.strokeWidth = 3
-                    cardView.strokeColor = ContextCompat.getColor(itemView.context, R.color.amber)
-                    // Set background to light amber (unless swiped)
-                    if (!isSwiped) {
-                        cardView.setCardBackgroundColor(ContextCompat.getColor(itemView.context, R.color.amber_light))
-                    }
-                }
-                else -> {
-                    progressBar.visibility = View.GONE
-                    cardView.strokeWidth = 0
-                    // Reset background to normal (unless swiped)
-                    if (!isSwiped) {
-                        cardView.setCardBackgroundColor(ContextCompat.getColor(itemView.context, R.color.card_background))
-                    }
-                }
-            }
-            
-            // Apply swipe background colors (overrides status-based colors)
-            if (isSwiped && swipeState != null) {
-                when (swipeState) {
-                    SwipeDirection.RIGHT -> {
-                        // Swiped right (delete) - red background
-                        cardView.setCardBackgroundColor(android.graphics.Color.parseColor("#FF3B30"))
-                    }
-                    SwipeDirection.LEFT -> {
-                        // Swiped left (complete) - green background
-                        cardView.setCardBackgroundColor(android.graphics.Color.parseColor("#34C759"))
-                    }
-                    SwipeDirection.NONE -> {
-                        // Should not happen
-                    }
-                }
-            }
+    override fun categoryTintFor(category: String): android.content.res.ColorStateList {
+        return categoryStyles.tintFor(category)
+    }
 
-            when (book.status) {
-                BookStatus.NOT_STARTED -> {
-                    ivStatus.setImageResource(android.R.drawable.ic_menu_info_details)
-                    ivStatus.alpha = 0.5f
-                    ivStatus.visibility = View.VISIBLE
-                    btnMarkInProgress.visibility = if (showActionButtons) View.VISIBLE else View.GONE
-                    btnMarkOnHold.visibility = View.GONE
-                    llDateInfo.visibility = View.GONE
-                    tvReadingSince.visibility = View.GONE
-                }
-                BookStatus.IN_PROGRESS -> {
-                    ivStatus.setImageResource(android.R.drawable.ic_media_play)
-                    ivStatus.alpha = 1.0f
-                    ivStatus.visibility = View.VISIBLE
-                    btnMarkInProgress.visibility = View.GONE // No play button when already reading
-                    btnMarkOnHold.visibility = if (showActionButtons) View.VISIBLE else View.GONE // Only pause button
-                    llDateInfo.visibility = View.VISIBLE
-                    
-                    // Calculate total reading days: accumulated + current session
-                    val currentSessionDays = book.currentReadingStartDate?.let { 
-                        calculateDaysSince(it) 
-                    } ?: 0
-                    val totalDays = book.totalReadingDays + currentSessionDays
-                    
-                    tvReadingSince.text = when {
-                        totalDays == 0 -> "Reading today"
-                        totalDays == 1 -> "Reading 1 day"
-                        else -> "Reading $totalDays days"
-                    }
-                    tvReadingSince.visibility = View.VISIBLE
-                    
-                    book.currentReadingStartDate?.let {
-                        tvStartDate.text = "S: ${dateFormat.format(it)}"
-                    } ?: run {
-                        tvStartDate.text = ""
-                    }
-                    tvEndDate.visibility = View.GONE
-                }
-                BookStatus.ON_HOLD -> {
-                    ivStatus.setImageResource(android.R.drawable.ic_media_pause)
-                    ivStatus.alpha = 0.7f
-                    ivStatus.visibility = View.VISIBLE
-                    btnMarkInProgress.visibility = if (showActionButtons) View.VISIBLE else View.GONE // Resume button
-                    btnMarkOnHold.visibility = View.GONE
-                    llDateInfo.visibility = View.GONE
-                    
-                    // Show total reading days accumulated so far
-                    if (book.totalReadingDays > 0) {
-                        tvReadingSince.text = when {
-                            book.totalReadingDays == 1 -> "Read 1 day total"
-                            else -> "Read ${book.totalReadingDays} days total"
-                        }
-                        tvReadingSince.visibility = View.VISIBLE
-                    } else {
-                        tvReadingSince.visibility = View.GONE
-                    }
-                }
-                BookStatus.COMPLETED -> {
-                    ivStatus.setImageResource(R.drawable.ic_checkmark_circle)
-                    ivStatus.clearColorFilter() // Drawable already has green color
-                    ivStatus.alpha = 1.0f
-                    ivStatus.visibility = View.VISIBLE
-                    btnMarkInProgress.visibility = View.GONE
-                    btnMarkOnHold.visibility = View.GONE
-                    llDateInfo.visibility = View.VISIBLE
-                    tvReadingSince.visibility = View.GONE
-                    book.startDate?.let {
-                        tvStartDate.text = "S: ${dateFormat.format(it)}"
-                    } ?: run {
-                        tvStartDate.text = ""
-                    }
-                    book.endDate?.let {
-                        tvEndDate.text = "C: ${dateFormat.format(it)}"
-                        tvEndDate.visibility = View.VISIBLE
-                    } ?: run {
-                        tvEndDate.visibility = View.GONE
-                    }
-                }
-            }
+    override fun readingDaysFor(bookId: Long): Int = readingDays[bookId] ?: 0
 
-            if (showActionButtons) {
-                btnEdit.visibility = View.VISIBLE
-            } else {
-                btnEdit.visibility = View.GONE
-            }
+    override fun toggleExpanded(bookId: Long): Boolean {
+        val previouslyExpandedId = expandedBookId
+        val expanded = previouslyExpandedId != bookId
+        expandedBookId = if (expanded) bookId else null
 
-            // Show drag handle if drag is enabled
-            if (enableDrag) {
-                ivDragHandle.visibility = View.VISIBLE
-            } else {
-                ivDragHandle.visibility = View.GONE
+        // If a different card was expanded, collapse it
+        if (previouslyExpandedId != null && previouslyExpandedId != bookId) {
+            val previousPosition = currentList.indexOfFirst { it.id == previouslyExpandedId }
+            if (previousPosition >= 0) {
+                notifyItemChanged(previousPosition, BookViewHolder.Payload.EXPANSION)
             }
         }
+        return expanded
     }
 
-    fun getItemAt(position: Int): Book? {
+    fun getItemAt(position: Int): BookListItem? {
         return if (position >= 0 && position < itemCount) {
             getItem(position)
         } else {
@@ -393,14 +238,63 @@ class BookAdapter(
         }
     }
 
-    class BookDiffCallback : DiffUtil.ItemCallback<Book>() {
-        override fun areItemsTheSame(oldItem: Book, newItem: Book): Boolean {
+    class BookDiffCallback : DiffUtil.ItemCallback<BookListItem>() {
+        override fun areItemsTheSame(oldItem: BookListItem, newItem: BookListItem): Boolean {
             return oldItem.id == newItem.id
         }
 
-        override fun areContentsTheSame(oldItem: Book, newItem: Book): Boolean {
+        override fun areContentsTheSame(oldItem: BookListItem, newItem: BookListItem): Boolean {
             return oldItem == newItem
         }
+
+        /**
+         * Names the parts of the row that changed, or null if a full rebind is needed.
+         * A change to rankKey or ranking alone needs no rebind of its own: the displayed rank
+         * follows the position and is refreshed by refreshShiftedRanks.
+         */
+        override fun getChangePayload(oldItem: BookListItem, newItem: BookListItem): Any? {
+            val parts = java.util.EnumSet.noneOf(BookViewHolder.Payload::class.java)
+            var rest = newItem
+            if (oldItem.status != newItem.status ||
+                oldItem.startDate != newItem.startDate ||
+                oldItem.endDate != newItem.endDate ||
+                oldItem.currentReadingStartDate != newItem.currentReadingStartDate
+            ) {
+                parts.add(BookViewHolder.Payload.STATUS)
+                rest = rest.copy(
+                    status = oldItem.status,
+                    startDate = oldItem.startDate,
+                    endDate = oldItem.endDate,
+                    currentReadingStartDate = oldItem.currentReadingStartDate
+                )
+            }
+            if (oldItem.category != newItem.category) {
+                parts.add(BookViewHolder.Payload.CATEGORY_COLOR)
+                rest = rest.copy(category = oldItem.category)
+            }
+            rest = rest.copy(ranking = oldItem.ranking, rankKey = oldItem.rankKey)
+            // Anything else (title, authors, ownership, ...) falls back to a full bind
+            return if (rest == oldItem) parts else null
+        }
+    }
+
+    companion object {
+        /**
+         * Combines the payloads queued for one bind, or returns null if any of them asks for a
+         * full bind (an empty list, or a null payload from DiffUtil).
+         */
+        fun mergePayloads(payloads: List<Any>): Set<BookViewHolder.Payload>? {
+            if (payloads.isEmpty()) return null
+            val parts = java.util.EnumSet.noneOf(BookViewHolder.Payload::class.java)
+            for (payload in payloads) {
+                when (payload) {
+                    is BookViewHolder.Payload -> parts.add(payload)
+                    is Set<*> -> payload.forEach { if (it is BookViewHolder.Payload) parts.add(it) }
+                    else -> return null
+                }
+            }
+            return parts
+        }
     }
 }
 
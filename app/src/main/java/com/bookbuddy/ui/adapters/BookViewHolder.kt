@@ -0,0 +1,384 @@
+package com.bookbuddy.ui.adapters
+
+import android.view.View
+import android.view.ViewGroup
+import android.widget.ImageButton
+import android.widget.ImageView
+import android.widget.TextView
+import androidx.core.content.ContextCompat
+import androidx.recyclerview.widget.RecyclerView
+import com.bookbuddy.R
+import com.bookbuddy.data.BookListItem
+import com.bookbuddy.data.BookStatus
+import com.bookbuddy.utils.DateUtils
+
+/**
+ * ViewHolder for item_book, shared by [BookAdapter] and [PagedBookAdapter].
+ * Adapter-level state (expansion, category colors, callbacks) is reached through [Host].
+ */
+class BookViewHolder(itemView: View, private val host: Host) : RecyclerView.ViewHolder(itemView) {
+
+    interface Host {
+        val showActionButtons: Boolean
+        val enableDrag: Boolean
+        val onEditClick: (BookListItem) -> Unit
+        val onMarkInProgressClick: (BookListItem) -> Unit
+        val onMarkOnHoldClick: (BookListItem) -> Unit
+        fun categoryTintFor(category: String): android.content.res.ColorStateList
+
+        /**
+         * Days read so far, summed over the book's reading sessions.
+         */
+        fun readingDaysFor(bookId: Long): Int
+
+        /**
+         * Toggles the expanded card to [bookId], collapsing any other expanded card.
+         * Returns true if [bookId] is now expanded.
+         */
+        fun toggleExpanded(bookId: Long): Boolean
+    }
+
+    private val tvRanking: TextView = itemView.findViewById(R.id.tvRanking)
+    private val tvBookName: TextView = itemView.findViewById(R.id.tvBookName)
+    private val tvAuthor: TextView = itemView.findViewById(R.id.tvAuthor)
+    private val tvCategory: TextView = itemView.findViewById(R.id.tvCategory)
+    private val ivCategory: ImageView = itemView.findViewById(R.id.ivCategory)
+    private val ivHasBook: ImageView = itemView.findViewById(R.id.ivHasBook)
+    private val tvAddedSince: TextView = itemView.findViewById(R.id.tvAddedSince)
+    private val tvReadingSince: TextView = itemView.findViewById(R.id.tvReadingSince)
+    private val ivStatus: ImageView = itemView.findViewById(R.id.ivStatus)
+    private val tvStartDate: TextView = itemView.findViewById(R.id.tvStartDate)
+    private val tvEndDate: TextView = itemView.findViewById(R.id.tvEndDate)
+    private val llDateInfo: View = itemView.findViewById(R.id.llDateInfo)
+    private val btnEdit: ImageButton = itemView.findViewById(R.id.btnEdit)
+    private val btnMarkInProgress: ImageButton = itemView.findViewById(R.id.btnMarkInProgress)
+    private val btnMarkOnHold: ImageButton = itemView.findViewById(R.id.btnMarkOnHold)
+    private val progressBar: android.widget.ProgressBar = itemView.findViewById(R.id.progressBar)
+    private val cardView: com.google.android.material.card.MaterialCardView = itemView as com.google.android.material.card.MaterialCardView
+    private val ivDragHandle: ImageView = itemView.findViewById(R.id.ivDragHandle)
+    private val llExpandedDetails: View = itemView.findViewById(R.id.llExpandedDetails)
+    private val tvExpandedBookName: TextView = itemView.findViewById(R.id.tvExpandedBookName)
+    private val tvExpandedAuthor: TextView = itemView.findViewById(R.id.tvExpandedAuthor)
+    private val mainContentLayout: View = itemView.findViewById(R.id.mainContentLayout)
+    private val bookInfoArea: ViewGroup? = itemView.findViewById(R.id.bookInfoArea)
+    private val buttonsLayout: ViewGroup? = itemView.findViewById(R.id.buttonsLayout)
+
+    // Book currently bound; the click listeners set once in init read it
+    private var boundBook: BookListItem? = null
+
+    /**
+     * Parts of a row that can be rebound on their own. Adapters pass these (or sets of them,
+     * from DiffUtil) as change payloads.
+     */
+    enum class Payload {
+        RANK,           // position changed
+        STATUS,         // status, reading dates or reading days changed
+        EXPANSION,      // expanded/collapsed by another card
+        CATEGORY_COLOR  // category renamed or recolored
+    }
+
+    init {
+        // Set button click listeners once - these must always work
+        // Make sure buttons are always clickable regardless of expansion state
+        btnEdit.isClickable = true
+        btnEdit.isFocusable = true
+        btnEdit.setOnClickListener { boundBook?.let(host.onEditClick) }
+
+        // Set up play/resume button (only shown for NOT_STARTED and ON_HOLD)
+        btnMarkInProgress.isClickable = true
+        btnMarkInProgress.isFocusable = true
+        btnMarkInProgress.setOnClickListener { boundBook?.let(host.onMarkInProgressClick) }
+
+        // Set up pause button (only shown for IN_PROGRESS)
+        btnMarkOnHold.isClickable = true
+        btnMarkOnHold.isFocusable = true
+        btnMarkOnHold.setOnClickListener { boundBook?.let(host.onMarkOnHoldClick) }
+
+        // Set click listener only on the book info area (not buttons)
+        bookInfoArea?.setOnClickListener { toggleExpansion() }
+
+        // Also allow clicking on the expanded section to collapse
+        // Make sure it doesn't block button clicks
+        llExpandedDetails.setOnClickListener { toggleExpansion() }
+        llExpandedDetails.isClickable = true
+        llExpandedDetails.isFocusable = false
+
+        // Ensure buttons layout doesn't intercept clicks
+        buttonsLayout?.isClickable = false
+        buttonsLayout?.isFocusable = false
+        // Don't set click listener on buttonsLayout - individual buttons handle their own clicks
+    }
+
+    private fun toggleExpansion() {
+        val book = boundBook ?: return
+        // Update adapter state; the adapter collapses any other expanded card
+        val newExpandedState = host.toggleExpanded(book.id)
+
+        // Animate the expansion/collapse of current card
+        // Don't notify adapter for same card - just animate directly
+        if (newExpandedState) {
+            llExpandedDetails.visibility = View.VISIBLE
+            llExpandedDetails.alpha = 0f
+            llExpandedDetails.animate()
+                .alpha(1f)
+                .setDuration(200)
+                .start()
+        } else {
+            llExpandedDetails.animate()
+                .alpha(0f)
+                .setDuration(200)
+                .withEndAction {
+                    llExpandedDetails.visibility = View.GONE
+                }
+                .start()
+        }
+    }
+
+    private fun calculateDaysSince(millis: Long): Int {
+        return (DateUtils.todayEpochDay() - DateUtils.toEpochDay(millis)).toInt()
+    }
+
+    fun bindRank(displayRank: Int) {
+        tvRanking.text = displayRank.toString()
+    }
+
+    fun bindExpansion(isExpanded: Boolean) {
+        llExpandedDetails.animate().cancel()
+        llExpandedDetails.alpha = 1f
+        llExpandedDetails.visibility = if (isExpanded) View.VISIBLE else View.GONE
+    }
+
+    fun bindCategory(book: BookListItem) {
+        tvCategory.text = book.category
+        // Tint the ranking circle with the category color (shared, pre-parsed tint)
+        tvRanking.backgroundTintList = host.categoryTintFor(book.category)
+    }
+
+    /**
+     * Rebinds only the parts named in [payloads]; anything else needs a full [bind].
+     */
+    fun bindPayloads(
+        book: BookListItem,
+        displayRank: Int,
+        isExpanded: Boolean,
+        swipeState: BookAdapter.SwipeDirection?,
+        payloads: Set<Payload>
+    ) {
+        boundBook = book
+        if (Payload.RANK in payloads) bindRank(displayRank)
+        if (Payload.CATEGORY_COLOR in payloads) bindCategory(book)
+        if (Payload.EXPANSION in payloads) bindExpansion(isExpanded)
+        if (Payload.STATUS in payloads) bindStatus(book, swipeState)
+    }
+
+    /**
+     * [displayRank] is the 1-based position in the list, not the stored ranking.
+     */
+    fun bind(book: BookListItem, displayRank: Int, isExpanded: Boolean, swipeState: BookAdapter.SwipeDirection?) {
+        boundBook = book
+        bindRank(displayRank)
+        tvBookName.text = book.name
+        // Joined from book_authors by the list query
+        tvAuthor.text = book.displayAuthor
+        bindCategory(book)
+        
+        // Set expanded details
+        tvExpandedBookName.text = book.name
+        tvExpandedAuthor.text = book.displayAuthor
+        
+        // Handle expansion state
+        bindExpansion(isExpanded)
+        
+        // Set has book icon - green border with checkmark if owned, gray border with X if not
+        if (book.hasBook) {
+            ivHasBook.setImageResource(R.drawable.ic_book_owned)
+            ivHasBook.clearColorFilter() // No color filter needed, drawable has colors
+            ivHasBook.alpha = 1.0f
+        } else {
+            ivHasBook.setImageResource(R.drawable.ic_book_not_owned)
+            ivHasBook.clearColorFilter() // No color filter needed, drawable has colors
+            ivHasBook.alpha = 1.0f
+        }
+        
+        // Calculate and display "Added since X days"
+        val daysSinceAdded = calculateDaysSince(book.createdAt)
+        tvAddedSince.text = when {
+            daysSinceAdded == 0 -> "Added today"
+            daysSinceAdded == 1 -> "Added 1 day ago"
+            else -> "Added $daysSinceAdded days ago"
+        }
+
+        bindStatus(book, swipeState)
+
+        if (host.showActionButtons) {
+            btnEdit.visibility = View.VISIBLE
+        } else {
+            btnEdit.visibility = View.GONE
+        }
+
+        // Show drag handle if drag is enabled
+        if (host.enableDrag) {
+            ivDragHandle.visibility = View.VISIBLE
+        } else {
+            ivDragHandle.visibility = View.GONE
+        }
+    }
+
+    /**
+     * A row whose page is not loaded: only the rank, which placeholders keep exact.
+     */
+    fun bindPlaceholder(displayRank: Int) {
+        boundBook = null
+        bindRank(displayRank)
+        tvBookName.text = ""
+        tvAuthor.text = ""
+        tvCategory.text = ""
+        tvAddedSince.text = ""
+        tvReadingSince.visibility = View.GONE
+        llDateInfo.visibility = View.GONE
+        progressBar.visibility = View.GONE
+        ivStatus.visibility = View.GONE
+        btnEdit.visibility = View.GONE
+        btnMarkInProgress.visibility = View.GONE
+        btnMarkOnHold.visibility = View.GONE
+        bindExpansion(false)
+    }
+
+    /**
+     * Status-dependent parts: card style, swipe background, status icon, action buttons and dates.
+     */
+    private fun bindStatus(book: BookListItem, swipeState: BookAdapter.SwipeDirection?) {
+        // Initially hide all status buttons - they'll be shown based on book status below
+        btnMarkInProgress.visibility = View.GONE
+        btnMarkOnHold.visibility = View.GONE
+
+        // Check if this item is in a swiped state (swipe colors take priority over status colors)
+        val isSwiped = swipeState != null && swipeState != BookAdapter.SwipeDirection.NONE
+        
+        // Set progress bar and border/background based on book status
+        when (book.status) {
+            BookStatus.IN_PROGRESS -> {
+                progressBar.visibility = View.VISIBLE
+                progressBar.progress = 100 // Show full green bar when reading
+                cardView.strokeWidth = 3
+                cardView.strokeColor = ContextCompat.getColor(itemView.context, R.color.primary)
+                // Set background - swipe color takes priority
+                if (!isSwiped) {
+                    cardView.setCardBackgroundColor(ContextCompat.getColor(itemView.context, R.color.card_background))
+                }
+            }
+            BookStatus.ON_HOLD -> {
+                progressBar.visibility = View.GONE
+                cardView.strokeWidth = 3
+                cardView.strokeColor = ContextCompat.getColor(itemView.context, R.color.amber)
+                // Set background to light amber (unless swiped)
+                if (!isSwiped) {
+                    cardView.setCardBackgroundColor(ContextCompat.getColor(itemView.context, R.color.amber_light))
+                }
+            }
+            else -> {
+                progressBar.visibility = View.GONE
+                cardView.strokeWidth = 0
+                // Reset background to normal (unless swiped)
+                if (!isSwiped) {
+                    cardView.setCardBackgroundColor(ContextCompat.getColor(itemView.context, R.color.card_background))
+                }
+            }
+        }
+        
+        // Apply swipe background colors (overrides status-based colors)
+        if (isSwiped && swipeState != null) {
+            when (swipeState) {
+                BookAdapter.SwipeDirection.RIGHT -> {
+                    // Swiped right (delete) - red background
+                    cardView.setCardBackgroundColor(android.graphics.Color.parseColor("#FF3B30"))
+                }
+                BookAdapter.SwipeDirection.LEFT -> {
+                    // Swiped left (complete) - green background
+                    cardView.setCardBackgroundColor(android.graphics.Color.parseColor("#34C759"))
+                }
+                BookAdapter.SwipeDirection.NONE -> {
+                    // Should not happen
+                }
+            }
+        }
+
+        when (book.status) {
+            BookStatus.NOT_STARTED -> {
+                ivStatus.setImageResource(android.R.drawable.ic_menu_info_details)
+                ivStatus.alpha = 0.5f
+                ivStatus.visibility = View.VISIBLE
+                btnMarkInProgress.visibility = if (host.showActionButtons) View.VISIBLE else View.GONE
+                btnMarkOnHold.visibility = View.GONE
+                llDateInfo.visibility = View.GONE
+                tvReadingSince.visibility = View.GONE
+            }
+            BookStatus.IN_PROGRESS -> {
+                ivStatus.setImageResource(android.R.drawable.ic_media_play)
+                ivStatus.alpha = 1.0f
+                ivStatus.visibility = View.VISIBLE
+                btnMarkInProgress.visibility = View.GONE // No play button when already reading
+                btnMarkOnHold.visibility = if (host.showActionButtons) View.VISIBLE else View.GONE // Only pause button
+                llDateInfo.visibility = View.VISIBLE
+                
+                // Precomputed from reading_sessions, including the open session
+                val totalDays = host.readingDaysFor(book.id)
+
+                tvReadingSince.text = when {
+                    totalDays == 0 -> "Reading today"
+                    totalDays == 1 -> "Reading 1 day"
+                    else -> "Reading $totalDays days"
+                }
+                tvReadingSince.visibility = View.VISIBLE
+                
+                book.currentReadingStartDate?.let {
+                    tvStartDate.text = "S: ${DateUtils.formatShortDate(it)}"
+                } ?: run {
+                    tvStartDate.text = ""
+                }
+                tvEndDate.visibility = View.GONE
+            }
+            BookStatus.ON_HOLD -> {
+                ivStatus.setImageResource(android.R.drawable.ic_media_pause)
+                ivStatus.alpha = 0.7f
+                ivStatus.visibility = View.VISIBLE
+                btnMarkInProgress.visibility = if (host.showActionButtons) View.VISIBLE else View.GONE // Resume button
+                btnMarkOnHold.visibility = View.GONE
+                llDateInfo.visibility = View.GONE
+                
+                // Show total reading days accumulated so far
+                val totalDays = host.readingDaysFor(book.id)
+                if (totalDays > 0) {
+                    tvReadingSince.text = when {
+                        totalDays == 1 -> "Read 1 day total"
+                        else -> "Read $totalDays days total"
+                    }
+                    tvReadingSince.visibility = View.VISIBLE
+                } else {
+                    tvReadingSince.visibility = View.GONE
+                }
+            }
+            BookStatus.COMPLETED -> {
+                ivStatus.setImageResource(R.drawable.ic_checkmark_circle)
+                ivStatus.clearColorFilter() // Drawable already has green color
+                ivStatus.alpha = 1.0f
+                ivStatus.visibility = View.VISIBLE
+                btnMarkInProgress.visibility = View.GONE
+                btnMarkOnHold.visibility = View.GONE
+                llDateInfo.visibility = View.VISIBLE
+                tvReadingSince.visibility = View.GONE
+                book.startDate?.let {
+                    tvStartDate.text = "S: ${DateUtils.formatShortDate(it)}"
+                } ?: run {
+                    tvStartDate.text = ""
+                }
+                book.endDate?.let {
+                    tvEndDate.text = "C: ${DateUtils.formatShortDate(it)}"
+                    tvEndDate.visibility = View.VISIBLE
+                } ?: run {
+                    tvEndDate.visibility = View.GONE
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.bookbuddy.ui.adapters
+
+import android.content.res.ColorStateList
+import android.graphics.Color
+import com.bookbuddy.utils.CategoryColorGenerator
+
+/**
+ * Category colors parsed once into shared [ColorStateList]s, so binding a row only looks up
+ * a tint. Categories without a stored color fall back to [CategoryColorGenerator], also cached.
+ */
+class CategoryStyleCache {
+
+    // Category name to tint, for categories with a color in the categories table
+    private val tints = HashMap<String, ColorStateList>()
+
+    // Fallback tints for categories not (yet) in the table
+    private val generatedTints = HashMap<String, ColorStateList>()
+
+    // One ColorStateList per distinct hex, shared by every category using it
+    private val tintsByHex = HashMap<String, ColorStateList>()
+
+    private val hexByCategory = HashMap<String, String>()
+
+    fun tintFor(category: String): ColorStateList {
+        return tints[category] ?: generatedTintFor(category)
+    }
+
+    private fun generatedTintFor(category: String): ColorStateList {
+        return generatedTints.getOrPut(category) {
+            tintForHex(CategoryColorGenerator.generateColorForCategory(category)) ?: ColorStateList.valueOf(Color.GRAY)
+        }
+    }
+
+    /**
+     * Applies a new category name to hex map. Only added, removed or recolored categories are
+     * re-parsed; returns the ones whose displayed tint actually changed.
+     */
+    fun update(colors: Map<String, String>): Set<String> {
+        val candidates = HashSet<String>()
+        for ((category, hex) in hexByCategory) {
+            if (colors[category] != hex) candidates.add(category)
+        }
+        for ((category, hex) in colors) {
+            if (hexByCategory[category] != hex) candidates.add(category)
+        }
+        if (candidates.isEmpty()) return emptySet()
+
+        val before = candidates.associateWith { tintFor(it) }
+        for (category in candidates) {
+            val hex = colors[category]
+            if (hex == null) {
+                hexByCategory.remove(category)
+                tints.remove(category)
+            } else {
+                hexByCategory[category] = hex
+                // A stored color that does not parse gets the category's generated color
+                tints[category] = tintForHex(hex) ?: generatedTintFor(category)
+            }
+        }
+        // Tints are shared per hex, so identity tells whether the color changed
+        return candidates.filterTo(HashSet()) { tintFor(it) !== before[it] }
+    }
+
+    // Null if [hex] is not a color; invalid values are not cached
+    private fun tintForHex(hex: String): ColorStateList? {
+        tintsByHex[hex]?.let { return it }
+        val color = try {
+            Color.parseColor(hex)
+        } catch (e: IllegalArgumentException) {
+            android.util.Log.w("BookBuddy", "Invalid category color: $hex")
+            return null
+        }
+        return ColorStateList.valueOf(color).also { tintsByHex[hex] = it }
+    }
+}
@@ -0,0 +1,116 @@
+package com.bookbuddy.ui.adapters
+
+import android.view.LayoutInflater
+import android.view.ViewGroup
+import androidx.paging.PagingDataAdapter
+import androidx.recyclerview.widget.RecyclerView
+import com.bookbuddy.R
+import com.bookbuddy.data.BookListItem
+
+/**
+ * Paging variant of [BookAdapter] for long lists such as the completed history, without drag or swipe.
+ * Only the loaded window of books is held in memory; the rest are null placeholders, so the
+ * adapter position of a row is its absolute position in the list even after pages are dropped.
+ */
+class PagedBookAdapter(
+    override val onEditClick: (BookListItem) -> Unit = { },
+    override val onMarkInProgressClick: (BookListItem) -> Unit = { },
+    override val onMarkOnHoldClick: (BookListItem) -> Unit = { },
+    override val showActionButtons: Boolean = false,
+    override val enableDrag: Boolean = false
+) : PagingDataAdapter<BookListItem, BookViewHolder>(BookAdapter.BookDiffCallback()), BookViewHolder.Host {
+
+    // Track expanded book (only one at a time)
+    private var expandedBookId: Long? = null
+
+    // Parsed category colors
+    private val categoryStyles = CategoryStyleCache()
+
+    init {
+        // The rank shown is the row position. Page loads fill placeholders in place, so only an
+        // insert, removal or move changes ranks, and only for the rows it shifted.
+        registerAdapterDataObserver(object : RecyclerView.AdapterDataObserver() {
+            override fun onItemRangeInserted(positionStart: Int, count: Int) {
+                renumber(positionStart + count, itemCount)
+            }
+
+            override fun onItemRangeRemoved(positionStart: Int, count: Int) {
+                renumber(positionStart, itemCount)
+            }
+
+            override fun onItemRangeMoved(fromPosition: Int, toPosition: Int, count: Int) {
+                renumber(minOf(fromPosition, toPosition), maxOf(fromPosition, toPosition) + count)
+            }
+        })
+    }
+
+    // Rebinds the rank of rows [from, to)
+    private fun renumber(from: Int, to: Int) {
+        val end = minOf(to, itemCount)
+        if (from < end) {
+            notifyItemRangeChanged(from, end - from, BookViewHolder.Payload.RANK)
+        }
+    }
+
+    /**
+     * Update the category color map. Only loaded rows whose category color changed are rebound;
+     * pages loaded later bind with the new tints anyway.
+     */
+    fun updateCategoryColors(categories: Map<String, String>) {
+        val changed = categoryStyles.update(categories)
+        if (changed.isEmpty()) return
+        snapshot().forEachIndexed { position, book ->
+            if (book != null && book.category in changed) {
+                notifyItemChanged(position, BookViewHolder.Payload.CATEGORY_COLOR)
+            }
+        }
+    }
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): BookViewHolder {
+        val view = LayoutInflater.from(parent.context)
+            .inflate(R.layout.item_book, parent, false)
+        return BookViewHolder(view, this)
+    }
+
+    override fun onBindViewHolder(holder: BookViewHolder, position: Int) {
+        // Binding a placeholder asks Paging to load its page
+        val book = getItem(position)
+        if (book == null) {
+            holder.bindPlaceholder(position + 1)
+            return
+        }
+        holder.bind(book, position + 1, expandedBookId == book.id, null)
+    }
+
+    override fun onBindViewHolder(holder: BookViewHolder, position: Int, payloads: MutableList<Any>) {
+        val parts = BookAdapter.mergePayloads(payloads)
+        val book = getItem(position)
+        if (parts == null || book == null) {
+            onBindViewHolder(holder, position)
+            return
+        }
+        holder.bindPayloads(book, position + 1, expandedBookId == book.id, null, parts)
+    }
+
+    override fun categoryTintFor(category: String): android.content.res.ColorStateList {
+        return categoryStyles.tintFor(category)
+    }
+
+    // Completed cards show their dates, not reading days
+    override fun readingDaysFor(bookId: Long): Int = 0
+
+    override fun toggleExpanded(bookId: Long): Boolean {
+        val previouslyExpandedId = expandedBookId
+        val expanded = previouslyExpandedId != bookId
+        expandedBookId = if (expanded) bookId else null
+
+        // If a different card was expanded, collapse it (only searches the loaded window)
+        if (previouslyExpandedId != null && previouslyExpandedId != bookId) {
+            val previousPosition = snapshot().indexOfFirst { it?.id == previouslyExpandedId }
+            if (previousPosition >= 0) {
+                notifyItemChanged(previousPosition, BookViewHolder.Payload.EXPANSION)
+            }
+        }
+        return expanded
+    }
+}
@@ -8,7 +8,7 @@ import android.widget.ArrayAdapter
 import android.widget.AutoCompleteTextView
 import android.widget.Toast
 import androidx.fragment.app.Fragment
-import androidx.fragment.app.viewModels
+import androidx.fragment.app.activityViewModels
 import androidx.lifecycle.lifecycleScope
 import androidx.navigation.fragment.findNavController
 import com.bookbuddy.R
@@ -17,13 +17,13 @@ import com.bookbuddy.data.BookStatus
 import com.bookbuddy.databinding.FragmentAddEditBookBinding
 import com.bookbuddy.ui.viewmodel.BookViewModel
 import com.bookbuddy.ui.viewmodel.BookViewModelFactory
+import com.bookbuddy.utils.DateUtils
 import kotlinx.coroutines.launch
-import java.util.Date
 
 class AddEditBookFragment : Fragment() {
     private var _binding: FragmentAddEditBookBinding? = null
     private val binding get() = _binding!!
-    private val viewModel: BookViewModel by viewModels {
+    private val viewModel: BookViewModel by activityViewModels {
         BookViewModelFactory(requireActivity().application)
     }
     private var isEditMode = false
@@ -125,7 +125,13 @@ class AddEditBookFragment : Fragment() {
                         }
                         binding.etAuthor.setText(authorDisplay)
                         binding.etCategory.setText(it.category)
-                        binding.etRanking.setText(it.ranking.toString())
+                        // Queue books show their live position; the stored ranking may be stale
+                        val ranking = if (it.status != BookStatus.COMPLETED) {
+                            viewModel.getQueuePosition(it.id)
+                        } else {
+                            it.ranking
+                        }
+                        binding.etRanking.setText(ranking.toString())
                         if (it.hasBook) {
                             binding.rgHasBook.check(R.id.rbYes)
                         } else {
@@ -149,13 +155,8 @@ class AddEditBookFragment : Fragment() {
         }
     }
 
-    private fun formatDate(date: Date?): String {
-        return if (date != null) {
-            val format = java.text.SimpleDateFormat("MMM dd, yyyy", java.util.Locale.getDefault())
-            format.format(date)
-        } else {
-            ""
-        }
+    private fun formatDate(millis: Long?): String {
+        return if (millis != null) DateUtils.formatLongDate(millis) else ""
     }
 
     private fun setupClickListeners() {
@@ -315,7 +316,7 @@ class AddEditBookFragment : Fragment() {
                 ranking = ranking,
                 hasBook = hasBook,
                 status = BookStatus.NOT_STARTED,
-                createdAt = Date(), // Set creation date when adding new book
+                createdAt = System.currentTimeMillis(), // Set creation date when adding new book
                 totalReadingDays = 0, // New book, no reading days yet
                 currentReadingStartDate = null // No active reading session
             )
@@ -5,22 +5,24 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import androidx.fragment.app.Fragment
-import androidx.fragment.app.viewModels
+import androidx.fragment.app.activityViewModels
 import androidx.lifecycle.lifecycleScope
+import androidx.paging.LoadState
 import androidx.recyclerview.widget.LinearLayoutManager
 import com.bookbuddy.databinding.FragmentAlreadyReadBinding
-import com.bookbuddy.ui.adapters.BookAdapter
+import com.bookbuddy.ui.adapters.PagedBookAdapter
 import com.bookbuddy.ui.viewmodel.BookViewModel
 import com.bookbuddy.ui.viewmodel.BookViewModelFactory
+import kotlinx.coroutines.flow.collectLatest
 import kotlinx.coroutines.launch
 
 class AlreadyReadFragment : Fragment() {
     private var _binding: FragmentAlreadyReadBinding? = null
     private val binding get() = _binding!!
-    private val viewModel: BookViewModel by viewModels {
+    private val viewModel: BookViewModel by activityViewModels {
         BookViewModelFactory(requireActivity().application)
     }
-    private lateinit var adapter: BookAdapter
+    private lateinit var adapter: PagedBookAdapter
 
     override fun onCreateView(
         inflater: LayoutInflater,
@@ -39,26 +41,32 @@ class AlreadyReadFragment : Fragment() {
     }
 
     private fun setupRecyclerView() {
-            adapter = BookAdapter(
-                onEditClick = { },
-                onMarkInProgressClick = { },
-                onMarkOnHoldClick = { },
-                showActionButtons = false
-            )
+        adapter = PagedBookAdapter(showActionButtons = false)
+
+        // Show the empty state once the first page has loaded and nothing came back
+        adapter.addLoadStateListener { loadStates ->
+            if (_binding != null) {
+                val isEmpty = loadStates.refresh is LoadState.NotLoading && adapter.itemCount == 0
+                binding.emptyStateText.visibility = if (isEmpty) View.VISIBLE else View.GONE
+            }
+        }
 
         binding.recyclerView.layoutManager = LinearLayoutManager(requireContext())
         binding.recyclerView.adapter = adapter
     }
 
     private fun setupObservers() {
+        // Category colors chosen by the user, as on the queue screen
+        viewLifecycleOwner.lifecycleScope.launch {
+            viewModel.categories.collect { categories ->
+                adapter.updateCategoryColors(categories.associate { it.name to it.colorHex })
+            }
+        }
+
         viewLifecycleOwner.lifecycleScope.launch {
             try {
-                viewModel.completedBooks.collect { books ->
-                    if (_binding != null) {
-                        adapter.submitList(books)
-                        binding.emptyStateText.visibility =
-                            if (books.isEmpty()) View.VISIBLE else View.GONE
-                    }
+                viewModel.completedBooksPaged.collectLatest { pagingData ->
+                    adapter.submitData(pagingData)
                 }
             } catch (e: Exception) {
                 android.util.Log.e("BookBuddy", "Error collecting completedBooks", e)
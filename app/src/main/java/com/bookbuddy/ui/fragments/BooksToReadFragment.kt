@@ -12,7 +12,7 @@ import android.widget.PopupMenu
 import androidx.appcompat.app.AlertDialog
 import androidx.core.content.ContextCompat
 import androidx.fragment.app.Fragment
-import androidx.fragment.app.viewModels
+import androidx.fragment.app.activityViewModels
 import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.lifecycleScope
 import androidx.navigation.fragment.findNavController
@@ -20,7 +20,8 @@ import androidx.recyclerview.widget.ItemTouchHelper
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.bookbuddy.R
-import com.bookbuddy.data.Book
+import com.bookbuddy.data.BookListItem
+import com.bookbuddy.data.BookQueueFilter
 import com.bookbuddy.databinding.FragmentBooksToReadBinding
 import com.bookbuddy.ui.adapters.BookAdapter
 import com.bookbuddy.ui.viewmodel.BookViewModel
@@ -30,7 +31,7 @@ import kotlinx.coroutines.launch
 class BooksToReadFragment : Fragment() {
     private var _binding: FragmentBooksToReadBinding? = null
     private val binding get() = _binding!!
-    private val viewModel: BookViewModel by viewModels {
+    private val viewModel: BookViewModel by activityViewModels {
         try {
             android.util.Log.d("BookBuddy", "Creating ViewModelFactory in BooksToReadFragment")
             BookViewModelFactory(requireActivity().application)
@@ -43,9 +44,15 @@ class BooksToReadFragment : Fragment() {
     private var selectedAuthor: String? = null
     private var selectedCategory: String? = null
     private var searchTitle: String = ""
-    private var sortBy: String = "ranking" // ranking, date_asc, date_desc
+    private var sortBy: String = BookQueueFilter.SORT_RANKING
     private var isUpdatingFilterProgrammatically = false
 
+    // Live drag session: the adapter reorders rows in memory until the drop
+    private var dragging = false
+    private var dragStartList: List<BookListItem> = emptyList()
+    private var dragFromPosition = RecyclerView.NO_POSITION
+    private var dragToPosition = RecyclerView.NO_POSITION
+
     override fun onCreateView(
         inflater: LayoutInflater,
         container: ViewGroup?,
@@ -67,6 +74,8 @@ class BooksToReadFragment : Fragment() {
             android.util.Log.d("BookBuddy", "Filter and sort setup complete")
             setupSearch()
             android.util.Log.d("BookBuddy", "Search setup complete")
+            // The view model is shared with other screens; start it from this screen's filter state
+            updateQueueFilter()
             setupObservers()
             android.util.Log.d("BookBuddy", "Observers setup complete")
             setupClickListeners()
@@ -102,7 +111,7 @@ class BooksToReadFragment : Fragment() {
             // Clear search text
             binding.etSearch.setText("")
             searchTitle = ""
-            applyFiltersAndSort()
+            viewModel.setSearchText("")
             // Hide keyboard
             val imm = requireContext().getSystemService(android.content.Context.INPUT_METHOD_SERVICE) as android.view.inputmethod.InputMethodManager
             imm.hideSoftInputFromWindow(binding.etSearch.windowToken, 0)
@@ -126,15 +135,7 @@ class BooksToReadFragment : Fragment() {
                 onMarkInProgressClick = { book -> viewModel.markAsInProgress(book.id) },
                 onMarkOnHoldClick = { book -> viewModel.markAsOnHold(book.id) },
                 showActionButtons = true,
-                enableDrag = true,
-                onItemMoved = { fromPosition, toPosition ->
-                    // Get current list from adapter
-                    val currentList = adapter.currentList.toList()
-                    if (fromPosition >= 0 && toPosition >= 0 &&
-                        fromPosition < currentList.size && toPosition < currentList.size) {
-                        viewModel.reorderBooks(fromPosition, toPosition, currentList)
-                    }
-                }
+                enableDrag = true
             )
 
             binding.recyclerView.layoutManager = LinearLayoutManager(requireContext())
@@ -177,25 +178,48 @@ class BooksToReadFragment : Fragment() {
                 viewHolder: RecyclerView.ViewHolder,
                 target: RecyclerView.ViewHolder
             ): Boolean {
-                val fromPosition = viewHolder.adapterPosition
-                val toPosition = target.adapterPosition
+                val fromPosition = viewHolder.bindingAdapterPosition
+                val toPosition = target.bindingAdapterPosition
 
-                if (fromPosition == RecyclerView.NO_POSITION || toPosition == RecyclerView.NO_POSITION) {
+                if (!dragging || fromPosition == RecyclerView.NO_POSITION || toPosition == RecyclerView.NO_POSITION) {
                     return false
                 }
 
-                // Update the adapter's list
-                val currentList = adapter.currentList.toMutableList()
-                val movedItem = currentList.removeAt(fromPosition)
-                currentList.add(toPosition, movedItem)
-                adapter.submitList(currentList)
-
-                // Notify the callback
-                adapter.onItemMoved?.invoke(fromPosition, toPosition)
+                // Only the adapter's in-memory order changes while dragging; the move is saved on drop
+                if (!adapter.moveItem(fromPosition, toPosition)) return false
+                dragToPosition = toPosition
 
                 return true
             }
 
+            override fun onSelectedChanged(viewHolder: RecyclerView.ViewHolder?, actionState: Int) {
+                super.onSelectedChanged(viewHolder, actionState)
+                if (actionState == ItemTouchHelper.ACTION_STATE_DRAG && viewHolder != null) {
+                    dragStartList = adapter.currentList.toList()
+                    adapter.startDrag()
+                    dragging = true
+                    dragFromPosition = viewHolder.bindingAdapterPosition
+                    dragToPosition = dragFromPosition
+                    // Hold back database updates so they don't fight the drag
+                    viewModel.beginReorder()
+                }
+            }
+
+            override fun clearView(recyclerView: RecyclerView, viewHolder: RecyclerView.ViewHolder) {
+                super.clearView(recyclerView, viewHolder)
+                if (!dragging) return
+                dragging = false
+                // The adapter already shows the dropped order; this hands it to the differ
+                adapter.endDrag()
+                if (dragFromPosition != RecyclerView.NO_POSITION && dragFromPosition != dragToPosition) {
+                    // Commit the net move once
+                    viewModel.reorderBooks(dragFromPosition, dragToPosition, dragStartList)
+                } else {
+                    viewModel.endReorder()
+                }
+                dragStartList = emptyList()
+            }
+
             override fun onSwiped(viewHolder: RecyclerView.ViewHolder, direction: Int) {
                 val position = viewHolder.adapterPosition
                 if (position == RecyclerView.NO_POSITION) return
@@ -288,10 +312,10 @@ class BooksToReadFragment : Fragment() {
         }
     }
 
-    private fun showCompleteConfirmation(book: Book, position: Int) {
+    private fun showCompleteConfirmation(book: BookListItem, position: Int) {
         AlertDialog.Builder(requireContext())
             .setTitle(R.string.mark_as_completed)
-            .setMessage(getString(R.string.complete_confirmation, book.name, book.author))
+            .setMessage(getString(R.string.complete_confirmation, book.name, book.displayAuthor))
             .setPositiveButton(R.string.mark_as_completed) { dialog, _ ->
                 // Clear swipe state and let the item be removed
                 adapter.clearSwipeState(book.id)
@@ -312,7 +336,6 @@ class BooksToReadFragment : Fragment() {
             .show()
     }
 
-    private var currentBooks: List<Book> = emptyList()
 
     private fun setupFilterAndSort() {
         // Set threshold for AutoCompleteTextView to show suggestions after 3 characters
@@ -359,7 +382,7 @@ class BooksToReadFragment : Fragment() {
                         // Author was deleted, reset to "All"
                         binding.actvAuthorFilter.setText("All", false)
                         selectedAuthor = null
-                        applyFiltersAndSort()
+                        updateQueueFilter()
                     }
                 }
                 
@@ -400,7 +423,7 @@ class BooksToReadFragment : Fragment() {
                             val imm = requireContext().getSystemService(android.content.Context.INPUT_METHOD_SERVICE) as android.view.inputmethod.InputMethodManager
                             imm.hideSoftInputFromWindow(binding.actvAuthorFilter.windowToken, 0)
                             isUpdatingFilterProgrammatically = false
-                            applyFiltersAndSort()
+                            updateQueueFilter()
                         } else {
                             isUpdatingFilterProgrammatically = false
                         }
@@ -423,7 +446,7 @@ class BooksToReadFragment : Fragment() {
                                     // Reset filter to "All" when text is cleared
                                     binding.actvAuthorFilter.dismissDropDown()
                                     selectedAuthor = null
-                                    applyFiltersAndSort()
+                                    updateQueueFilter()
                                 }
                                 // AutoCompleteTextView will handle filtering automatically based on threshold
                             }
@@ -465,7 +488,7 @@ class BooksToReadFragment : Fragment() {
                         // Category was deleted, reset to "All"
                         binding.actvCategoryFilter.setText("All", false)
                         selectedCategory = null
-                        applyFiltersAndSort()
+                        updateQueueFilter()
                     }
                 }
                 
@@ -506,7 +529,7 @@ class BooksToReadFragment : Fragment() {
                             val imm = requireContext().getSystemService(android.content.Context.INPUT_METHOD_SERVICE) as android.view.inputmethod.InputMethodManager
                             imm.hideSoftInputFromWindow(binding.actvCategoryFilter.windowToken, 0)
                             isUpdatingFilterProgrammatically = false
-                            applyFiltersAndSort()
+                            updateQueueFilter()
                         } else {
                             isUpdatingFilterProgrammatically = false
                         }
@@ -529,7 +552,7 @@ class BooksToReadFragment : Fragment() {
                                     // Reset filter to "All" when text is cleared
                                     binding.actvCategoryFilter.dismissDropDown()
                                     selectedCategory = null
-                                    applyFiltersAndSort()
+                                    updateQueueFilter()
                                 }
                                 // AutoCompleteTextView will handle filtering automatically based on threshold
                             }
@@ -551,8 +574,8 @@ class BooksToReadFragment : Fragment() {
             override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {}
             override fun afterTextChanged(s: Editable?) {
                 searchTitle = s?.toString()?.trim() ?: ""
-                android.util.Log.d("BookBuddy", "Search text changed: '$searchTitle'")
-                applyFiltersAndSort()
+                // Debounced and matched against the FTS index in the view model
+                viewModel.setSearchText(searchTitle)
             }
         })
     }
@@ -565,94 +588,37 @@ class BooksToReadFragment : Fragment() {
         
         popupMenu.setOnMenuItemClickListener { item: MenuItem ->
             sortBy = when (item.itemId) {
-                0 -> "ranking"
-                1 -> "date_asc"
-                2 -> "date_desc"
-                else -> "ranking"
+                0 -> BookQueueFilter.SORT_RANKING
+                1 -> BookQueueFilter.SORT_DATE_ASC
+                2 -> BookQueueFilter.SORT_DATE_DESC
+                else -> BookQueueFilter.SORT_RANKING
             }
-            applyFiltersAndSort()
+            updateQueueFilter()
             true
         }
         popupMenu.show()
     }
 
-    private fun applyFiltersAndSort() {
-        if (!::adapter.isInitialized || _binding == null) {
-            android.util.Log.d("BookBuddy", "Adapter or binding not ready, skipping filter")
-            return
-        }
-        
+    private fun updateQueueFilter() {
         android.util.Log.d("BookBuddy", "Applying filters - Author: $selectedAuthor, Category: $selectedCategory, Sort: $sortBy")
-        android.util.Log.d("BookBuddy", "Current books count: ${currentBooks.size}")
-        
-        if (currentBooks.isEmpty()) {
-            android.util.Log.d("BookBuddy", "No books to filter")
-            adapter.submitList(emptyList())
-            binding.emptyStateText.visibility = View.VISIBLE
-            return
-        }
-        
-        var filtered = currentBooks.toList() // Create a copy
-        
-        // Apply author filter - check all author columns (case-insensitive, supports partial matches)
-        if (selectedAuthor != null && selectedAuthor!!.isNotEmpty() && selectedAuthor != "All") {
-            filtered = filtered.filter { book ->
-                // Check if selected author text matches any of the author columns (case-insensitive, partial match)
-                val allAuthors = book.getAllAuthors()
-                allAuthors.any { it.contains(selectedAuthor!!, ignoreCase = true) } ||
-                book.author1?.contains(selectedAuthor!!, ignoreCase = true) == true ||
-                book.author2?.contains(selectedAuthor!!, ignoreCase = true) == true ||
-                book.author3?.contains(selectedAuthor!!, ignoreCase = true) == true ||
-                book.author4?.contains(selectedAuthor!!, ignoreCase = true) == true ||
-                book.author5?.contains(selectedAuthor!!, ignoreCase = true) == true
-            }
-            android.util.Log.d("BookBuddy", "After author filter ($selectedAuthor): ${filtered.size} books")
-        } else {
-            android.util.Log.d("BookBuddy", "No author filter applied")
-        }
-        
-        // Apply category filter (case-insensitive, supports partial matches)
-        if (selectedCategory != null && selectedCategory!!.isNotEmpty() && selectedCategory != "All") {
-            filtered = filtered.filter { 
-                it.category.contains(selectedCategory!!, ignoreCase = true)
-            }
-            android.util.Log.d("BookBuddy", "After category filter ($selectedCategory): ${filtered.size} books")
-        } else {
-            android.util.Log.d("BookBuddy", "No category filter applied")
-        }
-        
-        // Apply title search filter (case-insensitive, word matching)
-        if (searchTitle.isNotEmpty()) {
-            val searchWords = searchTitle.trim().lowercase().split("\\s+".toRegex())
-            filtered = filtered.filter { book ->
-                val bookTitle = book.name.lowercase()
-                // Check if all search words exist in the title
-                searchWords.all { word ->
-                    bookTitle.contains(word)
-                }
-            }
-            android.util.Log.d("BookBuddy", "After title search ($searchTitle): ${filtered.size} books")
-        } else {
-            android.util.Log.d("BookBuddy", "No title search applied")
-        }
-        
-        // Apply sort
-        filtered = when (sortBy) {
-            "date_asc" -> filtered.sortedBy { it.createdAt }
-            "date_desc" -> filtered.sortedByDescending { it.createdAt }
-            else -> filtered.sortedBy { it.ranking } // Default: by ranking
-        }
-        
-        android.util.Log.d("BookBuddy", "Final filtered count: ${filtered.size}")
-        
-        adapter.submitList(filtered)
-        binding.emptyStateText.visibility = if (filtered.isEmpty()) View.VISIBLE else View.GONE
+        viewModel.setQueueFilter(BookQueueFilter(selectedAuthor, selectedCategory, searchTitle, sortBy))
     }
 
     private fun setupObservers() {
         try {
             android.util.Log.d("BookBuddy", "Setting up observers...")
-            
+
+            // Until Room emits, show the queue as it was rendered last session
+            // (before the category and reading-day collectors, whose full maps then replace the snapshot's)
+            viewModel.queueSnapshot?.let { snapshot ->
+                if (adapter.itemCount == 0 && snapshot.books.isNotEmpty()) {
+                    adapter.updateCategoryColors(snapshot.categoryColors)
+                    adapter.updateReadingDays(snapshot.readingDays)
+                    adapter.submitList(snapshot.books)
+                    binding.emptyStateText.visibility = View.GONE
+                }
+            }
+
             // Observe categories to update adapter's color map
             viewLifecycleOwner.lifecycleScope.launch {
                 viewModel.categories.collect { categories ->
@@ -661,18 +627,27 @@ class BooksToReadFragment : Fragment() {
                     android.util.Log.d("BookBuddy", "Updated category colors: ${colorMap.size} categories")
                 }
             }
+
+            // Observe reading days per book, summed in SQL from reading_sessions
+            viewLifecycleOwner.lifecycleScope.launch {
+                viewModel.readingDays.collect { days ->
+                    adapter.updateReadingDays(days)
+                }
+            }
             
-            // Observe books to read
+            // Observe the filtered and sorted queue (computed off the main thread)
             viewLifecycleOwner.lifecycleScope.launch {
                 try {
-                    android.util.Log.d("BookBuddy", "Starting to collect booksToRead...")
-                    viewModel.booksToRead.collect { books ->
+                    android.util.Log.d("BookBuddy", "Starting to collect filteredBooksToRead...")
+                    viewModel.filteredBooksToRead.collect { books ->
                         try {
+                            if (dragging) {
+                                // A drag is live; the queue is re-emitted after the drop
+                                return@collect
+                            }
                             android.util.Log.d("BookBuddy", "Received ${books.size} books")
-                            currentBooks = books
-                            
-                            // Apply filters and sort
-                            applyFiltersAndSort()
+                            adapter.submitList(books)
+                            binding.emptyStateText.visibility = if (books.isEmpty()) View.VISIBLE else View.GONE
                         } catch (e: Exception) {
                             android.util.Log.e("BookBuddy", "Error updating book list", e)
                             e.printStackTrace()
@@ -740,14 +715,14 @@ class BooksToReadFragment : Fragment() {
         }
     }
 
-    private fun showDeleteConfirmation(book: Book, position: Int) {
+    private fun showDeleteConfirmation(book: BookListItem, position: Int) {
         androidx.appcompat.app.AlertDialog.Builder(requireContext())
             .setTitle(R.string.delete_book)
-            .setMessage(getString(R.string.delete_confirmation, book.name, book.author))
+            .setMessage(getString(R.string.delete_confirmation, book.name, book.displayAuthor))
             .setPositiveButton(R.string.delete) { dialog, _ ->
                 // Clear swipe state and let the item be removed
                 adapter.clearSwipeState(book.id)
-                viewModel.deleteBook(book)
+                viewModel.deleteBook(book.id)
                 dialog.dismiss()
             }
             .setNegativeButton(R.string.cancel) { dialog, _ ->
@@ -5,21 +5,59 @@ import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.viewModelScope
+import androidx.paging.PagingData
 import com.bookbuddy.data.Book
+import com.bookbuddy.data.BookListItem
 import com.bookbuddy.data.BookStatus
 import com.bookbuddy.repository.BookRepository
+import com.bookbuddy.data.BookQueueFilter
+import com.bookbuddy.data.ImportCounts
+import com.bookbuddy.data.ImportMode
+import com.bookbuddy.utils.CSVHelper
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.emptyFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeoutOrNull
+import java.io.InputStream
+import java.io.OutputStream
 
+@OptIn(ExperimentalCoroutinesApi::class, FlowPreview::class)
 class BookViewModel(application: Application) : AndroidViewModel(application) {
+    companion object {
+        private const val RELOAD_TIMEOUT_MS = 1_000L
+        private const val SEARCH_DEBOUNCE_MS = 250L
+    }
+
+    private val container: com.bookbuddy.AppContainer
     private val repository: BookRepository
 
-    val booksToRead: Flow<List<Book>>
-    val completedBooks: Flow<List<Book>>
-    val inProgressBooks: Flow<List<Book>>
-    val totalBooksRead: Flow<Int>
+    // True while a drag reorder is live or being saved; booksToRead is paused meanwhile
+    private val reorderLock = MutableStateFlow(false)
+
+    val booksToRead: Flow<List<BookListItem>>
+    val completedBooksPaged: Flow<PagingData<BookListItem>>
+    val dashboardStats: Flow<com.bookbuddy.data.DashboardStats>
     val booksInQueueCount: Flow<Int>
     val categories: Flow<List<com.bookbuddy.data.Category>>
+    val readingDays: Flow<Map<Long, Int>>
     val allAuthors: Flow<List<String>>
     val allCategoriesForFilter: Flow<List<String>>
 
@@ -31,34 +69,22 @@ class BookViewModel(application: Application) : AndroidViewModel(application) {
             throw IllegalStateException("Application must be BookBuddyApplication")
         }
         try {
-            android.util.Log.d("BookBuddy", "Getting database...")
-            val database = app.database
-            android.util.Log.d("BookBuddy", "Getting DAOs...")
-            val bookDao = database.bookDao()
-            val categoryDao = database.categoryDao()
-            android.util.Log.d("BookBuddy", "Creating repository...")
-            repository = BookRepository(bookDao, categoryDao)
-            android.util.Log.d("BookBuddy", "Repository created successfully")
-
-            // Initialize Flows
-            booksToRead = repository.getBooksToRead()
-            completedBooks = repository.getCompletedBooks()
-            inProgressBooks = repository.getInProgressBooks()
-            totalBooksRead = repository.getTotalBooksRead()
-            booksInQueueCount = repository.getBooksInQueueCount()
-            categories = repository.getAllCategories()
-            allAuthors = repository.getAllAuthors()
-            allCategoriesForFilter = repository.getAllCategoriesForFilter()
-            
-            // Initialize colors for existing categories that don't have colors
-            viewModelScope.launch {
-                try {
-                    repository.initializeCategoryColors()
-                } catch (e: Exception) {
-                    android.util.Log.e("BookBuddy", "Error initializing category colors", e)
-                }
+            // Repository and flows are shared app-wide; this view model only adds screen state
+            container = app.container
+            repository = container.repository
+
+            // Re-subscribing after a reorder replays the committed order (see reorderBooks)
+            booksToRead = reorderLock.flatMapLatest { locked ->
+                if (locked) emptyFlow() else container.booksToRead
             }
-            
+            completedBooksPaged = container.completedBooksPaged
+            dashboardStats = container.dashboardStats
+            booksInQueueCount = container.booksInQueueCount
+            categories = container.categories
+            readingDays = container.readingDays
+            allAuthors = container.allAuthors
+            allCategoriesForFilter = container.allCategoriesForFilter
+
             android.util.Log.d("BookBuddy", "BookViewModel initialized successfully")
         } catch (e: Exception) {
             android.util.Log.e("BookBuddy", "Failed to initialize ViewModel", e)
@@ -67,26 +93,91 @@ class BookViewModel(application: Application) : AndroidViewModel(application) {
         }
     }
 
-    private val _runRate = MutableLiveData<Double>()
-    val runRate: LiveData<Double> = _runRate
-
-    private val _booksThisYear = MutableLiveData<Int>()
-    val booksThisYear: LiveData<Int> = _booksThisYear
-
     private val _errorMessage = MutableLiveData<String?>()
     val errorMessage: LiveData<String?> = _errorMessage
 
-    init {
-        // Don't load statistics immediately - let fragments request it when needed
+    private val _transferProgress = MutableStateFlow<TransferProgress?>(null)
+    val transferProgress: StateFlow<TransferProgress?> = _transferProgress
+
+    // One-off results of an export or import, shown as toasts
+    private val _transferMessages = MutableSharedFlow<String>(extraBufferCapacity = 1)
+    val transferMessages: SharedFlow<String> = _transferMessages
+
+    private var transferJob: Job? = null
+
+    private val queueFilter = MutableStateFlow(BookQueueFilter())
+
+    private val debouncedSearch: Flow<String> = queueFilter
+        .map { it.search }
+        .distinctUntilChanged()
+        .debounce { query -> if (query.isBlank()) 0L else SEARCH_DEBOUNCE_MS }
+
+    /**
+     * The queue with [queueFilter] applied in SQL; only matching rows are loaded.
+     * Paused like booksToRead while a drag reorder is live, and re-queried when it ends.
+     */
+    val filteredBooksToRead: Flow<List<BookListItem>> =
+        combine(reorderLock, queueFilter, debouncedSearch) { locked, filter, search ->
+            if (locked) null else filter.copy(search = search)
+        }
+            .distinctUntilChanged()
+            .flatMapLatest { filter ->
+                when {
+                    filter == null -> emptyFlow()
+                    // The plain queue is the shared flow warmed up at startup
+                    filter.isUnfiltered -> container.booksToRead.onEach { container.saveQueueSnapshot(it) }
+                    else -> repository.getBooksToReadFiltered(filter)
+                }
+            }
+
+    /**
+     * The queue from the previous session, for a first frame before Room has emitted.
+     * Null once the live queue is available, or if the current filter is not the plain queue.
+     */
+    val queueSnapshot: com.bookbuddy.data.QueueSnapshot?
+        get() = if (queueFilter.value.isUnfiltered && container.booksToRead.replayCache.isEmpty()) {
+            container.queueSnapshot
+        } else {
+            null
+        }
+
+    fun setQueueFilter(filter: BookQueueFilter) {
+        queueFilter.value = filter
     }
 
-    fun loadStatistics() {
-        viewModelScope.launch {
+    fun setSearchText(search: String) {
+        queueFilter.update { it.copy(search = search) }
+    }
+
+    /**
+     * Exports the library as CSV to the stream from [openStream], which is opened on the IO dispatcher.
+     * Progress is published on [transferProgress].
+     */
+    fun exportBooks(openStream: () -> OutputStream?) {
+        if (transferJob?.isActive == true) {
+            _transferMessages.tryEmit("An import or export is already running")
+            return
+        }
+        transferJob = viewModelScope.launch {
+            _transferProgress.value = TransferProgress(TransferProgress.Kind.EXPORT, 0, 0)
             try {
-                _booksThisYear.value = repository.getBooksReadThisYear()
-                _runRate.value = repository.calculateRunRate()
+                val count = withContext(Dispatchers.IO) {
+                    openStream()?.use { outputStream ->
+                        repository.exportBooks(outputStream) { done, total ->
+                            _transferProgress.value = TransferProgress(TransferProgress.Kind.EXPORT, done, total)
+                        }
+                    }
+                }
+                _transferMessages.tryEmit(
+                    if (count != null) "Exported $count books successfully" else "Error exporting books"
+                )
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
-                _errorMessage.value = e.message
+                android.util.Log.e("BookBuddy", "Error exporting CSV", e)
+                _transferMessages.tryEmit("Error: ${e.message}")
+            } finally {
+                _transferProgress.value = null
             }
         }
     }
@@ -111,10 +202,10 @@ class BookViewModel(application: Application) : AndroidViewModel(application) {
         }
     }
 
-    fun deleteBook(book: Book) {
+    fun deleteBook(bookId: Long) {
         viewModelScope.launch {
             try {
-                repository.deleteBook(book)
+                repository.deleteBook(bookId)
             } catch (e: Exception) {
                 _errorMessage.value = e.message
             }
@@ -125,7 +216,6 @@ class BookViewModel(application: Application) : AndroidViewModel(application) {
         viewModelScope.launch {
             try {
                 repository.markAsInProgress(bookId)
-                loadStatistics()
             } catch (e: Exception) {
                 _errorMessage.value = e.message
             }
@@ -146,19 +236,18 @@ class BookViewModel(application: Application) : AndroidViewModel(application) {
         viewModelScope.launch {
             try {
                 repository.markAsCompleted(bookId)
-                loadStatistics()
             } catch (e: Exception) {
                 _errorMessage.value = e.message
             }
         }
     }
 
-    suspend fun getFilteredBooks(author: String?, category: String?, titleSearch: String?, sortBy: String): List<Book> {
+    suspend fun getQueuePosition(bookId: Long): Int {
         return try {
-            repository.getBooksToReadFiltered(author, category, titleSearch, sortBy)
+            repository.getQueuePosition(bookId)
         } catch (e: Exception) {
             _errorMessage.value = e.message
-            emptyList()
+            0
         }
     }
 
@@ -191,61 +280,103 @@ class BookViewModel(application: Application) : AndroidViewModel(application) {
         _errorMessage.value = null
     }
 
-    fun reorderBooks(fromPosition: Int, toPosition: Int, currentBooks: List<Book>) {
+    /**
+     * Pauses booksToRead for the duration of a drag. Ended by [reorderBooks] or [endReorder].
+     */
+    fun beginReorder() {
+        reorderLock.value = true
+    }
+
+    fun endReorder() {
+        reorderLock.value = false
+    }
+
+    /**
+     * Saves a finished drag as one move and then releases the booksToRead pause.
+     */
+    fun reorderBooks(fromPosition: Int, toPosition: Int, currentBooks: List<BookListItem>) {
+        reorderLock.value = true
         viewModelScope.launch {
             try {
-                repository.reorderBook(fromPosition, toPosition, currentBooks)
+                val previous = container.booksToRead.replayCache.firstOrNull()
+                val needsRebalance = repository.reorderBook(fromPosition, toPosition, currentBooks)
+                // Let the shared queue pick up the write first, so unlocking does not replay the pre-drop order
+                withTimeoutOrNull(RELOAD_TIMEOUT_MS) {
+                    container.booksToRead.first { it !== previous }
+                }
+                if (needsRebalance) {
+                    // Spread the keys out again off the drag path; the visible order does not change
+                    viewModelScope.launch {
+                        try {
+                            repository.rebalanceQueue()
+                        } catch (e: Exception) {
+                            android.util.Log.e("BookBuddy", "Error rebalancing queue", e)
+                        }
+                    }
+                }
             } catch (e: Exception) {
                 _errorMessage.value = e.message
+            } finally {
+                reorderLock.value = false
             }
         }
     }
 
-    suspend fun getAllBooks(): List<Book> {
-        return try {
-            repository.getAllBooks()
-        } catch (e: Exception) {
-            _errorMessage.value = e.message
-            emptyList()
+    /**
+     * Imports books from the CSV stream from [openStream] in chunked transactions, handling books
+     * already in the library according to [mode] (see BookRepository.importBooks). Progress is
+     * published on [transferProgress]; [cancelTransfer] stops after the current chunk, keeping the
+     * chunks already imported.
+     */
+    fun importBooks(mode: ImportMode, openStream: () -> InputStream?) {
+        if (transferJob?.isActive == true) {
+            _transferMessages.tryEmit("An import or export is already running")
+            return
         }
-    }
-
-    fun importBooks(books: List<Book>) {
-        viewModelScope.launch {
+        transferJob = viewModelScope.launch {
+            _transferProgress.value = TransferProgress(TransferProgress.Kind.IMPORT, 0, 0)
+            var counts = ImportCounts()
             try {
-                // Extract unique categories from imported books and add them to Category table
-                val uniqueCategories = books.map { it.category.trim() }
-                    .filter { it.isNotEmpty() }
-                    .distinct()
-                    .map { toTitleCase(it) }
-                
-                uniqueCategories.forEach { categoryName ->
-                    val existingCategory = repository.getCategoryByName(categoryName)
-                    if (existingCategory == null) {
-                        // Generate a color for the imported category
-                        val colorHex = com.bookbuddy.utils.CategoryColorGenerator.generateColorForCategory(categoryName)
-                        repository.insertCategory(com.bookbuddy.data.Category(name = categoryName, colorHex = colorHex))
-                        android.util.Log.d("BookBuddy", "Added category from import: $categoryName with color: $colorHex")
-                    }
+                val inputStream = withContext(Dispatchers.IO) { openStream() }
+                if (inputStream == null) {
+                    _transferMessages.tryEmit("Error importing books")
+                    return@launch
                 }
-                
-                // Insert books (with title-cased categories for consistency)
-                books.forEach { book ->
-                    val titleCasedCategory = toTitleCase(book.category.trim())
-                    repository.insertBook(book.copy(
-                        id = 0, // Reset ID to let Room auto-generate
-                        category = titleCasedCategory
-                    ))
+                inputStream.use { stream ->
+                    // Title-case categories for consistency; ids are reassigned by Room
+                    val books = CSVHelper.readBooks(stream).map { book ->
+                        book.copy(id = 0, category = toTitleCase(book.category.trim()))
+                    }
+                    repository.importBooks(books, mode).collect {
+                        counts = it
+                        _transferProgress.value = TransferProgress(TransferProgress.Kind.IMPORT, it.processed, 0)
+                    }
                 }
-                
-                android.util.Log.d("BookBuddy", "Imported ${books.size} books with ${uniqueCategories.size} categories")
+                android.util.Log.d("BookBuddy", "Import finished: $counts")
+                _transferMessages.tryEmit(
+                    when {
+                        counts.processed == 0 -> "No books found in CSV file"
+                        counts.updated == 0 && counts.skipped == 0 -> "Imported ${counts.added} books successfully"
+                        else -> "Imported ${counts.added} new books, updated ${counts.updated}, skipped ${counts.skipped}"
+                    }
+                )
+            } catch (e: CancellationException) {
+                _transferMessages.tryEmit("Import cancelled after ${counts.processed} books")
+                throw e
             } catch (e: Exception) {
                 android.util.Log.e("BookBuddy", "Error importing books", e)
                 _errorMessage.value = e.message
+                _transferMessages.tryEmit("Error: ${e.message}")
+            } finally {
+                _transferProgress.value = null
             }
         }
     }
-    
+
+    fun cancelTransfer() {
+        transferJob?.cancel()
+    }
+
     private fun toTitleCase(text: String): String {
         if (text.isEmpty()) return text
         return text.split(" ")
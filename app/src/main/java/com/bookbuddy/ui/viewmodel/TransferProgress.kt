@@ -0,0 +1,12 @@
+package com.bookbuddy.ui.viewmodel
+
+/**
+ * Progress of a running CSV export or import. [total] is 0 while it is not yet known.
+ */
+data class TransferProgress(
+    val kind: Kind,
+    val done: Int,
+    val total: Int
+) {
+    enum class Kind { EXPORT, IMPORT }
+}
@@ -2,109 +2,108 @@ package com.bookbuddy.utils
 
 import com.bookbuddy.data.Book
 import com.bookbuddy.data.BookStatus
-import java.io.BufferedReader
+import java.io.BufferedWriter
 import java.io.InputStream
 import java.io.InputStreamReader
 import java.io.OutputStream
 import java.io.OutputStreamWriter
-import java.text.SimpleDateFormat
-import java.util.*
+import java.io.Writer
 
 object CSVHelper {
-    private val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
+    const val HEADER = "ID,Name,Author,Category,Ranking,HasBook,Status,StartDate,EndDate,CreatedAt,TotalReadingDays,CurrentReadingStartDate"
 
-    fun exportBooksToCSV(books: List<Book>, outputStream: OutputStream) {
-        val writer = OutputStreamWriter(outputStream)
-        
-        // Write CSV header
-        writer.append("ID,Name,Author,Category,Ranking,HasBook,Status,StartDate,EndDate,CreatedAt,TotalReadingDays,CurrentReadingStartDate\n")
-        
-        // Write book data
-        books.forEach { book ->
-            writer.append("${book.id},")
-            writer.append("\"${book.name.replace("\"", "\"\"")}\",")
-            writer.append("\"${book.author.replace("\"", "\"\"")}\",")
-            writer.append("\"${book.category.replace("\"", "\"\"")}\",")
-            writer.append("${book.ranking},")
-            writer.append("${book.hasBook},")
-            writer.append("${book.status.name},")
-            writer.append("${book.startDate?.let { dateFormat.format(it) } ?: ""},")
-            writer.append("${book.endDate?.let { dateFormat.format(it) } ?: ""},")
-            writer.append("${dateFormat.format(book.createdAt)},")
-            writer.append("${book.totalReadingDays},")
-            writer.append("${book.currentReadingStartDate?.let { dateFormat.format(it) } ?: ""}\n")
+    // Rows reach the output stream in 64 KB blocks rather than one small write per field
+    private const val WRITE_BUFFER_SIZE = 64 * 1024
+
+    fun openWriter(outputStream: OutputStream): Writer {
+        return BufferedWriter(OutputStreamWriter(outputStream, Charsets.UTF_8), WRITE_BUFFER_SIZE)
+    }
+
+    fun writeHeader(writer: Writer) {
+        writer.write(HEADER)
+        writer.write('\n'.code)
+    }
+
+    /**
+     * Writes one CSV row for [book]; [ranking] overrides the stored ranking (the export passes the live queue position).
+     */
+    fun writeBook(writer: Writer, book: Book, ranking: Int = book.ranking) {
+        writer.write(book.id.toString())
+        writer.write(','.code)
+        writeQuoted(writer, book.name)
+        writer.write(','.code)
+        writeQuoted(writer, book.author)
+        writer.write(','.code)
+        writeQuoted(writer, book.category)
+        writer.write(','.code)
+        writer.write(ranking.toString())
+        writer.write(','.code)
+        writer.write(book.hasBook.toString())
+        writer.write(','.code)
+        writer.write(book.status.name)
+        writer.write(','.code)
+        book.startDate?.let { writer.write(DateUtils.formatCsvDate(it)) }
+        writer.write(','.code)
+        book.endDate?.let { writer.write(DateUtils.formatCsvDate(it)) }
+        writer.write(','.code)
+        writer.write(DateUtils.formatCsvDate(book.createdAt))
+        writer.write(','.code)
+        writer.write(book.totalReadingDays.toString())
+        writer.write(','.code)
+        book.currentReadingStartDate?.let { writer.write(DateUtils.formatCsvDate(it)) }
+        writer.write('\n'.code)
+    }
+
+    private fun writeQuoted(writer: Writer, value: String) {
+        writer.write('"'.code)
+        var start = 0
+        var quote = value.indexOf('"')
+        while (quote >= 0) {
+            // Double each embedded quote
+            writer.write(value, start, quote - start + 1)
+            writer.write('"'.code)
+            start = quote + 1
+            quote = value.indexOf('"', start)
         }
-        
-        writer.flush()
-        writer.close()
+        writer.write(value, start, value.length - start)
+        writer.write('"'.code)
     }
 
-    fun importBooksFromCSV(inputStream: InputStream): List<Book> {
-        val books = mutableListOf<Book>()
-        val reader = BufferedReader(InputStreamReader(inputStream))
-        
-        // Skip header line
-        reader.readLine()
-        
-        var line: String?
-        while (reader.readLine().also { line = it } != null) {
-            try {
-                val book = parseCSVLine(line!!)
-                if (book != null) {
-                    books.add(book)
-                }
-            } catch (e: Exception) {
-                android.util.Log.e("BookBuddy", "Error parsing CSV line: $line", e)
-            }
+    /**
+     * Lazily parses books from [inputStream] with [CsvReader]; unparseable records are logged and skipped.
+     * The caller owns the stream and must keep it open while iterating.
+     */
+    fun readBooks(inputStream: InputStream): Sequence<Book> = sequence {
+        val csv = CsvReader(InputStreamReader(inputStream, Charsets.UTF_8))
+        val fields = ArrayList<String>(12)
+        csv.readRecord(fields) // Header
+        while (csv.readRecord(fields)) {
+            if (fields.size == 1 && fields[0].isEmpty()) continue // Blank line
+            parseBook(fields)?.let { yield(it) }
         }
-        
-        reader.close()
-        return books
     }
 
-    private fun parseCSVLine(line: String): Book? {
-        val fields = parseCSVFields(line)
+    private fun parseBook(fields: List<String>): Book? {
         if (fields.size < 12) return null
 
         return try {
             Book(
                 id = fields[0].toLongOrNull() ?: 0L,
-                name = fields[1].trim('"'),
-                author = fields[2].trim('"'),
-                category = fields[3].trim('"'),
+                name = fields[1],
+                author = fields[2],
+                category = fields[3],
                 ranking = fields[4].toIntOrNull() ?: 1,
                 hasBook = fields[5].toBoolean(),
                 status = BookStatus.valueOf(fields[6]),
-                startDate = fields[7].takeIf { it.isNotEmpty() }?.let { dateFormat.parse(it) },
-                endDate = fields[8].takeIf { it.isNotEmpty() }?.let { dateFormat.parse(it) },
-                createdAt = fields[9].takeIf { it.isNotEmpty() }?.let { dateFormat.parse(it) } ?: Date(),
+                startDate = DateUtils.parseCsvDate(fields[7]),
+                endDate = DateUtils.parseCsvDate(fields[8]),
+                createdAt = DateUtils.parseCsvDate(fields[9]) ?: System.currentTimeMillis(),
                 totalReadingDays = fields[10].toIntOrNull() ?: 0,
-                currentReadingStartDate = fields[11].takeIf { it.isNotEmpty() }?.let { dateFormat.parse(it) }
+                currentReadingStartDate = DateUtils.parseCsvDate(fields[11])
             )
         } catch (e: Exception) {
-            android.util.Log.e("BookBuddy", "Error creating book from CSV", e)
+            android.util.Log.e("BookBuddy", "Error creating book from CSV record: $fields", e)
             null
         }
     }
-
-    private fun parseCSVFields(line: String): List<String> {
-        val fields = mutableListOf<String>()
-        var currentField = StringBuilder()
-        var insideQuotes = false
-        
-        for (char in line) {
-            when {
-                char == '"' -> insideQuotes = !insideQuotes
-                char == ',' && !insideQuotes -> {
-                    fields.add(currentField.toString())
-                    currentField = StringBuilder()
-                }
-                else -> currentField.append(char)
-            }
-        }
-        fields.add(currentField.toString()) // Add last field
-        
-        return fields
-    }
 }
-
@@ -0,0 +1,100 @@
+package com.bookbuddy.utils
+
+import java.io.Closeable
+import java.io.Reader
+
+/**
+ * Streaming RFC 4180 CSV tokenizer. Reads through one reusable char buffer and field builder,
+ * and handles quoted fields with embedded commas, newlines and doubled ("") quotes,
+ * CRLF or LF line endings, and a leading byte order mark.
+ */
+class CsvReader(private val reader: Reader, bufferSize: Int = DEFAULT_BUFFER_SIZE) : Closeable {
+    companion object {
+        const val DEFAULT_BUFFER_SIZE = 64 * 1024
+        private const val BOM = '\uFEFF'
+    }
+
+    private val buffer = CharArray(bufferSize)
+    private var position = 0
+    private var limit = 0
+    private var atStart = true
+    private val field = StringBuilder()
+
+    private fun fill(): Boolean {
+        position = 0
+        limit = reader.read(buffer).coerceAtLeast(0)
+        if (limit == 0) return false
+        if (atStart) {
+            atStart = false
+            if (buffer[0] == BOM) position = 1
+            if (position >= limit) return fill()
+        }
+        return true
+    }
+
+    /**
+     * Reads the next record into [fields], which is cleared first so callers can reuse one list.
+     * Returns false at the end of input.
+     */
+    fun readRecord(fields: MutableList<String>): Boolean {
+        fields.clear()
+        field.setLength(0)
+        if (position >= limit && !fill()) return false
+
+        var inQuotes = false
+        while (true) {
+            if (position >= limit && !fill()) {
+                // End of input ends the record, even inside an unterminated quote
+                fields.add(field.toString())
+                return true
+            }
+            if (inQuotes) {
+                // Copy the run up to the next quote in one append
+                val start = position
+                while (position < limit && buffer[position] != '"') position++
+                field.append(buffer, start, position - start)
+                if (position >= limit) continue
+                position++
+                if (position >= limit && !fill()) {
+                    inQuotes = false
+                    continue
+                }
+                if (buffer[position] == '"') {
+                    field.append('"') // Escaped quote
+                    position++
+                } else {
+                    inQuotes = false
+                }
+            } else {
+                val start = position
+                while (position < limit) {
+                    val c = buffer[position]
+                    if (c == ',' || c == '\n' || c == '\r' || c == '"') break
+                    position++
+                }
+                field.append(buffer, start, position - start)
+                if (position >= limit) continue
+                when (buffer[position++]) {
+                    ',' -> {
+                        fields.add(field.toString())
+                        field.setLength(0)
+                    }
+                    '"' -> inQuotes = true
+                    '\r' -> {
+                        fields.add(field.toString())
+                        if ((position < limit || fill()) && buffer[position] == '\n') position++
+                        return true
+                    }
+                    else -> { // '\n'
+                        fields.add(field.toString())
+                        return true
+                    }
+                }
+            }
+        }
+    }
+
+    override fun close() {
+        reader.close()
+    }
+}
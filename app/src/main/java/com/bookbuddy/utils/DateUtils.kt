@@ -0,0 +1,86 @@
+package com.bookbuddy.utils
+
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flow
+import java.time.Duration
+import java.time.Instant
+import java.time.LocalDate
+import java.time.ZoneId
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+import java.time.format.DateTimeParseException
+import java.util.Locale
+
+/**
+ * Date parsing, formatting and day arithmetic on java.time (desugared below API 26).
+ * Formatters are immutable and safe to share between threads, unlike SimpleDateFormat,
+ * and day counts are epoch-day differences rather than Calendar math.
+ */
+object DateUtils {
+    private const val MILLIS_PER_DAY = 24 * 60 * 60 * 1000L
+
+    // delay() does not count deep sleep, so the day tick re-reads the clock at least this often
+    private const val MAX_TICK_WAIT_MS = 60_000L
+
+    // CSV dates are ISO yyyy-MM-dd regardless of the device locale
+    private val csvDateFormatter: DateTimeFormatter = DateTimeFormatter.ISO_LOCAL_DATE
+
+    private val shortDateFormatter: DateTimeFormatter = DateTimeFormatter.ofPattern("MMM dd", Locale.getDefault())
+    private val longDateFormatter: DateTimeFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy", Locale.getDefault())
+
+    /**
+     * Local calendar day of [millis] in [zone], as days since 1970-01-01.
+     */
+    fun toEpochDay(millis: Long, zone: ZoneId = ZoneId.systemDefault()): Long {
+        val offsetSeconds = zone.rules.getOffset(Instant.ofEpochMilli(millis)).totalSeconds
+        return Math.floorDiv(millis + offsetSeconds * 1000L, MILLIS_PER_DAY)
+    }
+
+    fun todayEpochDay(): Long = LocalDate.now().toEpochDay()
+
+    /**
+     * Today's epoch day, emitted on collection and again whenever the local date changes.
+     */
+    fun todayEpochDays(): Flow<Long> = flow {
+        while (true) {
+            val now = ZonedDateTime.now()
+            emit(now.toLocalDate().toEpochDay())
+            val untilMidnight = Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay(now.zone)).toMillis()
+            delay(untilMidnight.coerceIn(1L, MAX_TICK_WAIT_MS))
+        }
+    }.distinctUntilChanged()
+
+    fun formatCsvDate(millis: Long): String {
+        return csvDateFormatter.format(LocalDate.ofEpochDay(toEpochDay(millis)))
+    }
+
+    /**
+     * Parses a yyyy-MM-dd CSV date to local midnight in epoch millis, or null if [text] is blank or malformed.
+     */
+    fun parseCsvDate(text: String): Long? {
+        if (text.isBlank()) return null
+        return try {
+            val day = LocalDate.parse(text.trim(), csvDateFormatter)
+            day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli()
+        } catch (e: DateTimeParseException) {
+            android.util.Log.w("BookBuddy", "Invalid CSV date: $text")
+            null
+        }
+    }
+
+    /**
+     * Short "MMM dd" label used on book cards.
+     */
+    fun formatShortDate(millis: Long): String {
+        return shortDateFormatter.format(LocalDate.ofEpochDay(toEpochDay(millis)))
+    }
+
+    /**
+     * "MMM dd, yyyy" label used on the edit screen.
+     */
+    fun formatLongDate(millis: Long): String {
+        return longDateFormatter.format(LocalDate.ofEpochDay(toEpochDay(millis)))
+    }
+}
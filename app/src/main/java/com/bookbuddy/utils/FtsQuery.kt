@@ -0,0 +1,16 @@
+package com.bookbuddy.utils
+
+object FtsQuery {
+    private val tokenSplitter = Regex("[^\\p{L}\\p{N}]+")
+
+    /**
+     * Turns free text into an FTS4 MATCH expression where every word is a prefix token
+     * ("hob tol" -> "hob* tol*"). Tokens are implicitly AND-ed.
+     * Returns null when the text contains no searchable words.
+     */
+    fun prefixMatch(text: String): String? {
+        val tokens = text.lowercase().split(tokenSplitter).filter { it.isNotEmpty() }
+        if (tokens.isEmpty()) return null
+        return tokens.joinToString(" ") { "$it*" }
+    }
+}
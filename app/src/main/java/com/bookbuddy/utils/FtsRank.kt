@@ -0,0 +1,47 @@
+package com.bookbuddy.utils
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.ln
+import kotlin.math.max
+
+/**
+ * Okapi BM25 relevance computed from an FTS4 matchinfo blob, since FTS4 has no built-in ranking.
+ */
+object FtsRank {
+    private const val K1 = 1.2
+    private const val B = 0.75
+
+    // Terms found in more than half the rows have a negative BM25 idf; keep them slightly positive
+    private const val MIN_IDF = 0.01
+
+    /**
+     * Scores one row from matchinfo in "pcnalx" format (native byte order, as SQLite writes it).
+     * [weights] scales each FTS column's contribution; columns past its end count once.
+     * Higher is more relevant; a row with no hits scores 0.
+     */
+    fun bm25(matchInfo: ByteArray, weights: DoubleArray): Double {
+        val ints = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer()
+        val phrases = ints[0]
+        val columns = ints[1]
+        val rows = ints[2].toDouble()
+        val averageLengths = 3
+        val lengths = averageLengths + columns
+        val hits = lengths + columns
+
+        var score = 0.0
+        for (phrase in 0 until phrases) {
+            for (column in 0 until columns) {
+                val base = hits + 3 * (column + phrase * columns)
+                val hitsInRow = ints[base]
+                if (hitsInRow == 0) continue
+                val rowsWithHits = ints[base + 2]
+                val idf = max(MIN_IDF, ln((rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5)))
+                val lengthRatio = ints[lengths + column].toDouble() / ints[averageLengths + column].coerceAtLeast(1)
+                val tf = hitsInRow * (K1 + 1) / (hitsInRow + K1 * (1 - B + B * lengthRatio))
+                score += weights.getOrElse(column) { 1.0 } * idf * tf
+            }
+        }
+        return score
+    }
+}
@@ -0,0 +1,97 @@
+package com.bookbuddy.data
+
+import com.bookbuddy.data.TestDatabase.execute
+import com.bookbuddy.data.TestDatabase.insertBook
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import java.sql.ResultSet
+import java.util.Date
+
+class BookListItemTest {
+
+    private val db = TestDatabase.open()
+
+    @After
+    fun close() {
+        db.close()
+    }
+
+    /**
+     * The date fields of a row as the entity held them before, one java.util.Date per non-null column.
+     */
+    private class DateRow(val startDate: Date?, val endDate: Date?, val createdAt: Date, val currentReadingStartDate: Date?)
+
+    private fun ResultSet.nullableLong(column: String): Long? = getLong(column).takeUnless { wasNull() }
+
+    private fun ResultSet.toListItem() = BookListItem(
+        id = getLong("id"),
+        name = getString("name"),
+        displayAuthor = getString("displayAuthor"),
+        category = getString("category"),
+        ranking = getInt("ranking"),
+        rankKey = getLong("rankKey"),
+        hasBook = getInt("hasBook") != 0,
+        status = BookStatus.fromCode(getInt("status")) ?: BookStatus.NOT_STARTED,
+        startDate = nullableLong("startDate"),
+        endDate = nullableLong("endDate"),
+        createdAt = getLong("createdAt"),
+        currentReadingStartDate = nullableLong("currentReadingStartDate")
+    )
+
+    private fun ResultSet.toDateRow() = DateRow(
+        startDate = nullableLong("startDate")?.let { Date(it) },
+        endDate = nullableLong("endDate")?.let { Date(it) },
+        createdAt = Date(getLong("createdAt")),
+        currentReadingStartDate = nullableLong("currentReadingStartDate")?.let { Date(it) }
+    )
+
+    private fun <T> emit(map: ResultSet.() -> T): List<T> =
+        db.createStatement().use { statement ->
+            statement.executeQuery("${QueueSql.SELECT_QUEUE} ORDER BY rankKey ASC").use { rows ->
+                val items = ArrayList<T>()
+                while (rows.next()) items.add(rows.map())
+                items
+            }
+        }
+
+    private fun allocatedBytes(block: () -> Unit): Long {
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val thread = Thread.currentThread().id
+        val before = threads.getThreadAllocatedBytes(thread)
+        block()
+        return threads.getThreadAllocatedBytes(thread) - before
+    }
+
+    /**
+     * One 10k-row queue emission, with the dates read as Longs against also wrapping each one in a Date.
+     */
+    @Test
+    fun epochColumnsSkipDateAllocationPerEmission() {
+        val rows = 10_000
+        repeat(rows) { i -> db.insertBook("Book $i", author = "Author ${i % 300}", rankKey = i * 1024L) }
+        db.execute(
+            "UPDATE books SET startDate = 1700000000000 + id, endDate = 1710000000000 + id, " +
+                "createdAt = 1690000000000 + id, currentReadingStartDate = 1700000000000 + id"
+        )
+
+        // Warm both paths up first so the JIT settles
+        repeat(3) {
+            emit { toListItem() }
+            emit { toListItem() to toDateRow() }
+        }
+
+        val items = emit { toListItem() }
+        assertEquals(rows, items.size)
+        assertEquals(1_700_000_000_000L + items[0].id, items[0].startDate)
+
+        val epochBytes = allocatedBytes { emit { toListItem() } }
+        val dateBytes = allocatedBytes { emit { toListItem() to toDateRow() } }
+        val savedPerRow = (dateBytes - epochBytes) / rows
+        println("Bytes per 10k-row emission: epoch millis $epochBytes, with Dates $dateBytes ($savedPerRow per row)")
+        // Four Date objects of at least 24 bytes each
+        assertTrue("saved $savedPerRow bytes per row", savedPerRow >= 4 * 24)
+    }
+}
@@ -0,0 +1,52 @@
+package com.bookbuddy.data
+
+import com.bookbuddy.data.TestDatabase.insertBook
+import com.bookbuddy.data.TestDatabase.queryLongs
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class BookQueueQueryTest {
+
+    private val db = TestDatabase.open()
+
+    @After
+    fun close() {
+        db.close()
+    }
+
+    private fun ids(filter: BookQueueFilter) = db.queryLongs(BookQueueQuery.build(filter))
+
+    @Test
+    fun authorFilterMatchesNonAsciiNamesAsListed() {
+        val zola = db.insertBook("Germinal", author = "Émile Zola", rankKey = 1)
+        db.insertBook("Nana", author = "Zola Fan Club", rankKey = 2)
+
+        // The dropdown lists book_authors.name; Kotlin's lowercase() would have folded the É
+        assertEquals(listOf(zola), ids(BookQueueFilter(author = "Émile Zola")))
+        assertEquals(listOf(zola), ids(BookQueueFilter(author = " ÉMILE ZOLA ")))
+    }
+
+    @Test
+    fun authorFilterIsExactNotPartial() {
+        db.insertBook("Nana", author = "Zola Fan Club", rankKey = 1)
+
+        assertEquals(emptyList<Long>(), ids(BookQueueFilter(author = "Zola")))
+    }
+
+    @Test
+    fun categoryFilterIsExact() {
+        val fiction = db.insertBook("Dune", category = "Fiction", rankKey = 1)
+        db.insertBook("Cosmos", category = "Science Fiction", rankKey = 2)
+
+        assertEquals(listOf(fiction), ids(BookQueueFilter(category = "Fiction")))
+    }
+
+    @Test
+    fun completedBooksAreNotInTheQueue() {
+        val queued = db.insertBook("Dune", rankKey = 2)
+        db.insertBook("Emma", status = BookStatus.COMPLETED, rankKey = 1)
+
+        assertEquals(listOf(queued), ids(BookQueueFilter()))
+    }
+}
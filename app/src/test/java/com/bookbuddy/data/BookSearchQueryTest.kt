@@ -0,0 +1,75 @@
+package com.bookbuddy.data
+
+import com.bookbuddy.data.TestDatabase.insertBook
+import com.bookbuddy.data.TestDatabase.prepare
+import com.bookbuddy.utils.FtsQuery
+import com.bookbuddy.utils.FtsRank
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class BookSearchQueryTest {
+
+    private val db = TestDatabase.open()
+
+    @After
+    fun close() {
+        db.close()
+    }
+
+    private fun searchQuery(text: String, filter: BookQueueFilter = BookQueueFilter(search = text)) =
+        BookQueueQuery.buildSearch(filter, FtsQuery.prefixMatch(text)!!)
+
+    @Test
+    fun searchIsDrivenByTheFtsIndex() {
+        val filtered = BookQueueFilter(author = "Tolkien", category = "Fiction", search = "hob")
+        for (query in listOf(searchQuery("hob"), searchQuery("hob", filtered))) {
+            val plan = db.prepare(query, prefix = "EXPLAIN QUERY PLAN ").use { statement ->
+                statement.executeQuery().use { rows ->
+                    val details = mutableListOf<String>()
+                    while (rows.next()) details.add(rows.getString("detail"))
+                    details
+                }
+            }
+
+            assertTrue(plan.toString(), plan.first().contains("books_fts VIRTUAL TABLE INDEX"))
+            assertTrue(plan.toString(), plan.any { it.contains("books USING INTEGER PRIMARY KEY") })
+            assertTrue(plan.toString(), plan.none { it.contains("index_books_inQueue_rankKey") })
+        }
+    }
+
+    @Test
+    fun titleMatchesRankAboveAuthorMatches() {
+        db.insertBook("Silmarillion", author = "J.R.R. Tolkien", rankKey = 1)
+        db.insertBook("Tolkien", author = "Humphrey Carpenter", rankKey = 2)
+        db.insertBook("Dune", author = "Frank Herbert", rankKey = 3)
+
+        assertEquals(listOf("Tolkien", "Silmarillion"), search("tolk"))
+    }
+
+    @Test
+    fun onlyQueueBooksMatchingTheFiltersAreFound() {
+        db.insertBook("Hobbit", category = "Fiction")
+        db.insertBook("Hobbit Lore", status = BookStatus.COMPLETED)
+        db.insertBook("Hobbit Homes", category = "Travel")
+
+        assertEquals(setOf("Hobbit", "Hobbit Homes"), search("hobbit").toSet())
+        assertEquals(listOf("Hobbit"), search("hobbit", BookQueueFilter(category = "Fiction", search = "hobbit")))
+    }
+
+    /**
+     * Runs [BookQueueQuery.buildSearch] and ranks the hits as BookRepository.getBooksToReadFiltered does.
+     */
+    private fun search(text: String, filter: BookQueueFilter = BookQueueFilter(search = text)): List<String> {
+        val hits = mutableListOf<Pair<String, Double>>()
+        db.prepare(searchQuery(text, filter)).use { statement ->
+            statement.executeQuery().use { rows ->
+                while (rows.next()) {
+                    hits.add(rows.getString("name") to FtsRank.bm25(rows.getBytes("matchInfo"), doubleArrayOf(3.0, 1.0)))
+                }
+            }
+        }
+        return hits.sortedByDescending { it.second }.map { it.first }
+    }
+}
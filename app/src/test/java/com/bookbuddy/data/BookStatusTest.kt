@@ -0,0 +1,67 @@
+package com.bookbuddy.data
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class BookStatusTest {
+
+    @Test
+    fun transitionTable() {
+        val edges = BookStatus.entries.flatMap { to -> to.allowedFrom.map { from -> from to to } }.toSet()
+
+        assertEquals(
+            setOf(
+                BookStatus.NOT_STARTED to BookStatus.IN_PROGRESS,
+                BookStatus.ON_HOLD to BookStatus.IN_PROGRESS,
+                BookStatus.IN_PROGRESS to BookStatus.ON_HOLD,
+                BookStatus.NOT_STARTED to BookStatus.COMPLETED,
+                BookStatus.IN_PROGRESS to BookStatus.COMPLETED,
+                BookStatus.ON_HOLD to BookStatus.COMPLETED
+            ),
+            edges
+        )
+    }
+
+    @Test
+    fun noStatusMovesToItself() {
+        BookStatus.entries.forEach { status -> assertFalse(status in status.allowedFrom) }
+    }
+
+    @Test
+    fun completedAndNotStartedAreNeverEntered() {
+        // Completed books only leave through an edit; nothing returns a book to NOT_STARTED
+        assertEquals(emptyList<BookStatus>(), BookStatus.NOT_STARTED.allowedFrom)
+        BookStatus.entries.forEach { to -> assertFalse(BookStatus.COMPLETED in to.allowedFrom) }
+    }
+
+    @Test
+    fun storedCodesNeverChange() {
+        assertEquals(
+            mapOf(
+                BookStatus.NOT_STARTED to 0,
+                BookStatus.IN_PROGRESS to 1,
+                BookStatus.ON_HOLD to 2,
+                BookStatus.COMPLETED to 3
+            ),
+            BookStatus.entries.associateWith { it.code }
+        )
+        assertEquals("(0, 1, 2)", BookStatusCodes.QUEUE)
+    }
+
+    @Test
+    fun codesRoundTrip() {
+        BookStatus.entries.forEach { assertEquals(it, BookStatus.fromCode(it.code)) }
+        assertNull(BookStatus.fromCode(7))
+    }
+
+    @Test
+    fun unknownStoredCodeReadsAsNotStarted() {
+        val converters = DateConverters()
+
+        assertEquals(BookStatus.NOT_STARTED, converters.toBookStatus(7))
+        assertEquals(BookStatus.ON_HOLD, converters.toBookStatus(converters.fromBookStatus(BookStatus.ON_HOLD)))
+        assertNull(converters.toBookStatus(null))
+    }
+}
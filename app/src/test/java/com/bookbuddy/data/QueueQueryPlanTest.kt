@@ -0,0 +1,60 @@
+package com.bookbuddy.data
+
+import com.bookbuddy.data.TestDatabase.execute
+import com.bookbuddy.data.TestDatabase.insertBook
+import com.bookbuddy.data.TestDatabase.queryLong
+import com.bookbuddy.data.TestDatabase.queryPlan
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class QueueQueryPlanTest {
+
+    private val db = TestDatabase.open()
+
+    @After
+    fun close() {
+        db.close()
+    }
+
+    private fun assertIndexOrdered(plan: List<String>) {
+        assertTrue(plan.toString(), plan.any { it.contains("USING INDEX index_books_inQueue_rankKey (inQueue=?)") })
+        assertTrue(plan.toString(), plan.none { it.contains("TEMP B-TREE") })
+    }
+
+    @Test
+    fun queueIsReadInIndexOrder() {
+        val unfiltered = BookQueueQuery.build(BookQueueFilter())
+
+        assertIndexOrdered(db.queryPlan(unfiltered.sql))
+        assertIndexOrdered(db.queryPlan("${QueueSql.SELECT_QUEUE} ORDER BY rankKey ASC"))
+    }
+
+    @Test
+    fun exportKeysetPageIsReadInIndexOrder() {
+        val plan = db.queryPlan(
+            "SELECT * FROM books WHERE ${QueueSql.IN_QUEUE} AND (rankKey > ? OR (rankKey = ? AND id > ?)) " +
+                "ORDER BY rankKey ASC, id ASC LIMIT 500",
+            0L, 0L, 0L
+        )
+
+        assertIndexOrdered(plan)
+    }
+
+    @Test
+    fun inQueueFollowsStatus() {
+        val queued = db.insertBook("Dune", status = BookStatus.NOT_STARTED)
+        val finished = db.insertBook("Emma", status = BookStatus.COMPLETED)
+        fun inQueue(id: Long) = db.queryLong("SELECT inQueue FROM books WHERE id = ?", id)
+
+        assertEquals(1L, inQueue(queued))
+        assertEquals(0L, inQueue(finished))
+
+        db.execute("UPDATE books SET status = ? WHERE id = ?", BookStatusCodes.COMPLETED, queued)
+        db.execute("UPDATE books SET status = ?, inQueue = 0 WHERE id = ?", BookStatusCodes.ON_HOLD, finished)
+
+        assertEquals(0L, inQueue(queued))
+        assertEquals(1L, inQueue(finished))
+    }
+}
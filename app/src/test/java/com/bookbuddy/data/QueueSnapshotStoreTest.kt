@@ -0,0 +1,118 @@
+package com.bookbuddy.data
+
+import com.bookbuddy.data.TestDatabase.insertBook
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+class QueueSnapshotStoreTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val db = TestDatabase.open()
+
+    @After
+    fun close() {
+        db.close()
+    }
+
+    private fun item(id: Long, status: BookStatus = BookStatus.NOT_STARTED, startDate: Long? = null) = BookListItem(
+        id = id,
+        name = "Book $id — «ünïcode»",
+        displayAuthor = "Author $id, Co-Author",
+        category = if (id % 2 == 0L) "Fiction" else "History",
+        ranking = id.toInt(),
+        rankKey = id * 1024,
+        hasBook = id % 3 == 0L,
+        status = status,
+        startDate = startDate,
+        endDate = null,
+        createdAt = 1_700_000_000_000L + id,
+        currentReadingStartDate = startDate
+    )
+
+    private fun snapshot(size: Int) = QueueSnapshot(
+        books = (1L..size).map { if (it == 2L) item(it, BookStatus.IN_PROGRESS, startDate = 1_710_000_000_000L) else item(it) },
+        categoryColors = mapOf("Fiction" to "#FF5722", "History" to "#3F51B5"),
+        readingDays = mapOf(2L to 12)
+    )
+
+    @Test
+    fun roundTrip() {
+        val store = QueueSnapshotStore(folder.newFile("queue.snapshot"))
+        val written = snapshot(20)
+
+        store.write(written)
+
+        assertEquals(written, store.read())
+    }
+
+    @Test
+    fun missingFileReadsAsNull() {
+        assertNull(QueueSnapshotStore(File(folder.root, "absent.snapshot")).read())
+    }
+
+    @Test
+    fun otherVersionOrTruncatedFileReadsAsNull() {
+        val file = folder.newFile("queue.snapshot")
+        val store = QueueSnapshotStore(file)
+        store.write(snapshot(5))
+        val bytes = file.readBytes()
+
+        file.writeBytes(bytes.copyOf(bytes.size / 2))
+        assertNull(store.read())
+
+        file.writeBytes(byteArrayOf(0, 0, 0, 99) + bytes.copyOfRange(4, bytes.size))
+        assertNull(store.read())
+    }
+
+    @Test
+    fun writeReplacesPreviousSnapshotAndLeavesNoTempFile() {
+        val file = folder.newFile("queue.snapshot")
+        val store = QueueSnapshotStore(file)
+
+        store.write(snapshot(20))
+        store.write(snapshot(3))
+
+        assertEquals(snapshot(3), store.read())
+        assertEquals(listOf("queue.snapshot"), folder.root.list()!!.toList())
+    }
+
+    /**
+     * The first list frame comes from the snapshot file, not from the queue query.
+     */
+    @Test
+    fun timeToFirstList() {
+        repeat(5_000) { i -> db.insertBook("Book $i", author = "Author ${i % 300}", rankKey = i * 1024L) }
+        val file = folder.newFile("queue.snapshot")
+        QueueSnapshotStore(file).write(snapshot(20))
+
+        val snapshotNanos = (1..5).map {
+            val start = System.nanoTime()
+            val books = QueueSnapshotStore(file).read()!!.books
+            val elapsed = System.nanoTime() - start
+            assertEquals(20, books.size)
+            elapsed
+        }.sorted()[2]
+
+        val queryStart = System.nanoTime()
+        var rows = 0
+        db.createStatement().use { statement ->
+            statement.executeQuery("${QueueSql.SELECT_QUEUE} ORDER BY rankKey ASC").use { cursor ->
+                while (cursor.next()) rows++
+            }
+        }
+        val queryNanos = System.nanoTime() - queryStart
+
+        assertEquals(5_000, rows)
+        println("Time to first list: snapshot ${snapshotNanos / 1_000} us, queue query ${queryNanos / 1_000} us")
+        // One 60 Hz frame
+        assertTrue("snapshot read took ${snapshotNanos / 1_000} us", snapshotNanos < 16_000_000L)
+    }
+}
@@ -0,0 +1,102 @@
+package com.bookbuddy.data
+
+import com.bookbuddy.data.TestDatabase.execute
+import com.bookbuddy.data.TestDatabase.insertBook
+import com.bookbuddy.data.TestDatabase.queryLong
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class ReadingSessionTest {
+
+    private val db = TestDatabase.open()
+
+    private val today = db.queryLong("SELECT ${ReadingSessionSql.TODAY_EPOCH_DAY}")!!
+
+    @After
+    fun close() {
+        db.close()
+    }
+
+    private fun millisDaysAgo(days: Int) = System.currentTimeMillis() - days * 24 * 60 * 60 * 1000L
+
+    private fun epochDay(millis: Long) = db.queryLong("SELECT ${ReadingSessionSql.epochDay("?")}", millis)!!
+
+    private fun totalReadingDays(id: Long) = db.queryLong("SELECT totalReadingDays FROM books WHERE id = ?", id)!!
+
+    private fun readingTotals(todayEpochDay: Long): Map<Long, Long> =
+        db.prepareStatement(ReadingSessionSql.READING_TOTALS).use { statement ->
+            statement.setLong(1, todayEpochDay)
+            statement.executeQuery().use { rows ->
+                val totals = HashMap<Long, Long>()
+                while (rows.next()) totals[rows.getLong("bookId")] = rows.getLong("readingDays")
+                totals
+            }
+        }
+
+    @Test
+    fun closingSessionUpdatesTotalReadingDays() {
+        val startedAt = millisDaysAgo(3)
+        val id = db.insertBook("Dune", status = BookStatus.IN_PROGRESS, currentReadingStartDate = startedAt)
+
+        db.execute(
+            "UPDATE books SET status = ?, currentReadingStartDate = NULL WHERE id = ?",
+            BookStatusCodes.ON_HOLD, id
+        )
+
+        assertEquals(today - epochDay(startedAt), totalReadingDays(id))
+        assertEquals(mapOf(id to today - epochDay(startedAt)), readingTotals(today))
+    }
+
+    @Test
+    fun writingOtherReadingDaysIsUndone() {
+        val id = db.insertBook("Emma", totalReadingDays = 5)
+
+        // What an UPSERT import or a stale edit writes
+        db.execute("UPDATE books SET totalReadingDays = 99, name = 'Emma' WHERE id = ?", id)
+
+        assertEquals(5L, totalReadingDays(id))
+        assertEquals(mapOf(id to 5L), readingTotals(today))
+    }
+
+    @Test
+    fun statusEditWithStaleReadingDaysKeepsTheSessionDays() {
+        val startedAt = millisDaysAgo(2)
+        val id = db.insertBook(
+            "Ulysses",
+            status = BookStatus.IN_PROGRESS,
+            totalReadingDays = 4,
+            currentReadingStartDate = startedAt
+        )
+
+        // The edit screen saves the days it loaded, from before the session closed
+        db.execute(
+            "UPDATE books SET status = ?, totalReadingDays = 4, currentReadingStartDate = NULL WHERE id = ?",
+            BookStatusCodes.COMPLETED, id
+        )
+
+        assertEquals(4 + today - epochDay(startedAt), totalReadingDays(id))
+    }
+
+    @Test
+    fun openSessionCountsUpToTheDayPassedIn() {
+        val startedAt = millisDaysAgo(3)
+        val id = db.insertBook("Middlemarch", status = BookStatus.IN_PROGRESS, currentReadingStartDate = startedAt)
+        val days = today - epochDay(startedAt)
+
+        assertEquals(mapOf(id to days), readingTotals(today))
+        // After midnight the same rows give one more day, without any write to re-trigger the query
+        assertEquals(mapOf(id to days + 1), readingTotals(today + 1))
+        // An open session only counts into the closed total once it closes
+        assertEquals(0L, totalReadingDays(id))
+    }
+
+    @Test
+    fun booksWithoutReadingDaysAreLeftOut() {
+        db.insertBook("Unread")
+        val id = db.insertBook("Started today", status = BookStatus.IN_PROGRESS, currentReadingStartDate = System.currentTimeMillis())
+
+        assertEquals(emptyMap<Long, Long>(), readingTotals(today))
+        assertEquals(mapOf(id to 1L), readingTotals(today + 1))
+    }
+}
@@ -0,0 +1,144 @@
+package com.bookbuddy.data
+
+import androidx.sqlite.db.SupportSQLiteProgram
+import androidx.sqlite.db.SupportSQLiteQuery
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.PreparedStatement
+
+/**
+ * The current BookDatabase schema on an in-memory JDBC SQLite connection, for query plan and
+ * trigger tests that do not need Room. The tables mirror the DDL Room generates for the entities;
+ * the triggers and statistics come from the same code the app runs.
+ */
+object TestDatabase {
+    private val TABLES = listOf(
+        """
+        CREATE TABLE `books` (
+            `id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `name` TEXT NOT NULL, `author` TEXT NOT NULL,
+            `author1` TEXT, `author2` TEXT, `author3` TEXT, `author4` TEXT, `author5` TEXT,
+            `category` TEXT NOT NULL, `ranking` INTEGER NOT NULL, `rankKey` INTEGER NOT NULL DEFAULT 0,
+            `hasBook` INTEGER NOT NULL, `status` INTEGER NOT NULL, `startDate` INTEGER, `endDate` INTEGER,
+            `createdAt` INTEGER NOT NULL, `totalReadingDays` INTEGER NOT NULL, `currentReadingStartDate` INTEGER,
+            `naturalKey` TEXT NOT NULL DEFAULT '', `inQueue` INTEGER NOT NULL DEFAULT 1
+        )
+        """,
+        "CREATE INDEX `index_books_inQueue_rankKey` ON `books` (`inQueue`, `rankKey`)",
+        "CREATE INDEX `index_books_status_endDate` ON `books` (`status`, `endDate`)",
+        "CREATE INDEX `index_books_status_startDate` ON `books` (`status`, `startDate`)",
+        "CREATE INDEX `index_books_category_status` ON `books` (`category`, `status`)",
+        "CREATE INDEX `index_books_naturalKey` ON `books` (`naturalKey`)",
+        """
+        CREATE TABLE `book_authors` (
+            `bookId` INTEGER NOT NULL, `position` INTEGER NOT NULL, `name` TEXT NOT NULL,
+            `nameNormalized` TEXT NOT NULL, PRIMARY KEY(`bookId`, `position`)
+        )
+        """,
+        "CREATE INDEX `index_book_authors_name_bookId` ON `book_authors` (`name`, `bookId`)",
+        "CREATE INDEX `index_book_authors_nameNormalized_bookId` ON `book_authors` (`nameNormalized`, `bookId`)",
+        "CREATE VIRTUAL TABLE `books_fts` USING FTS4(`name` TEXT NOT NULL, `author` TEXT NOT NULL, tokenize=unicode61, content=`books`)",
+        "CREATE TRIGGER room_fts_content_sync_books_fts_BEFORE_DELETE BEFORE DELETE ON `books` BEGIN DELETE FROM `books_fts` WHERE `docid`=OLD.`rowid`; END",
+        "CREATE TRIGGER room_fts_content_sync_books_fts_AFTER_INSERT AFTER INSERT ON `books` BEGIN INSERT INTO `books_fts`(`docid`, `name`, `author`) VALUES (NEW.`rowid`, NEW.`name`, NEW.`author`); END",
+        "CREATE TABLE `library_stats` (`id` INTEGER NOT NULL, `totalCount` INTEGER NOT NULL, `completedCount` INTEGER NOT NULL, `inProgressCount` INTEGER NOT NULL, `queueCount` INTEGER NOT NULL, PRIMARY KEY(`id`))",
+        "CREATE TABLE `yearly_stats` (`year` INTEGER NOT NULL, `completedCount` INTEGER NOT NULL, PRIMARY KEY(`year`))",
+        "CREATE TABLE `category_stats` (`category` TEXT NOT NULL, `bookCount` INTEGER NOT NULL, `completedCount` INTEGER NOT NULL, PRIMARY KEY(`category`))",
+        "CREATE TABLE `reading_sessions` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `bookId` INTEGER NOT NULL, `startEpochDay` INTEGER NOT NULL, `endEpochDay` INTEGER)",
+        "CREATE INDEX `index_reading_sessions_bookId` ON `reading_sessions` (`bookId`)"
+    )
+
+    fun open(): Connection {
+        val connection = DriverManager.getConnection("jdbc:sqlite::memory:")
+        val triggers = DatabaseTriggers.bookAuthorTriggers + DatabaseTriggers.ftsContentSyncTriggers +
+            DatabaseTriggers.statsTriggers + DatabaseTriggers.queueFlagTriggers + DatabaseTriggers.readingSessionTriggers
+        (TABLES + triggers).forEach { connection.execute(it) }
+        connection.execute("INSERT INTO library_stats (id, totalCount, completedCount, inProgressCount, queueCount) ${StatsSql.RECOMPUTE_LIBRARY_STATS}")
+        return connection
+    }
+
+    /**
+     * Inserts a book with the given fields and defaults for the rest; returns its id.
+     */
+    fun Connection.insertBook(
+        name: String,
+        author: String = "",
+        category: String = "Fiction",
+        status: BookStatus = BookStatus.NOT_STARTED,
+        rankKey: Long = 0,
+        endDate: Long? = null,
+        totalReadingDays: Int = 0,
+        currentReadingStartDate: Long? = null
+    ): Long {
+        prepareStatement(
+            "INSERT INTO books (name, author, author1, category, ranking, rankKey, hasBook, status, endDate, " +
+                "createdAt, totalReadingDays, currentReadingStartDate) VALUES (?, ?, ?, ?, 0, ?, 0, ?, ?, 0, ?, ?)"
+        ).use { statement ->
+            statement.setString(1, name)
+            statement.setString(2, author)
+            statement.setString(3, author.ifEmpty { null })
+            statement.setString(4, category)
+            statement.setLong(5, rankKey)
+            statement.setInt(6, status.code)
+            statement.setObject(7, endDate)
+            statement.setInt(8, totalReadingDays)
+            statement.setObject(9, currentReadingStartDate)
+            statement.executeUpdate()
+        }
+        return queryLong("SELECT last_insert_rowid()")!!
+    }
+
+    fun Connection.execute(sql: String, vararg args: Any?) {
+        prepareStatement(sql).use { statement ->
+            args.forEachIndexed { index, arg -> statement.setObject(index + 1, arg) }
+            statement.execute()
+        }
+    }
+
+    fun Connection.queryLong(sql: String, vararg args: Any?): Long? =
+        prepareStatement(sql).use { statement ->
+            args.forEachIndexed { index, arg -> statement.setObject(index + 1, arg) }
+            statement.executeQuery().use { rows -> if (rows.next()) rows.getObject(1)?.let { rows.getLong(1) } else null }
+        }
+
+    /**
+     * The EXPLAIN QUERY PLAN detail lines for [sql], one per plan step.
+     */
+    fun Connection.queryPlan(sql: String, vararg args: Any?): List<String> =
+        prepareStatement("EXPLAIN QUERY PLAN $sql").use { statement ->
+            args.forEachIndexed { index, arg -> statement.setObject(index + 1, arg) }
+            statement.executeQuery().use { rows ->
+                val details = mutableListOf<String>()
+                while (rows.next()) details.add(rows.getString("detail"))
+                details
+            }
+        }
+
+    /**
+     * Prepares a query built for Room, such as BookQueueQuery's, with its arguments bound.
+     * [prefix] goes before its SQL, e.g. "EXPLAIN QUERY PLAN ".
+     */
+    fun Connection.prepare(query: SupportSQLiteQuery, prefix: String = ""): PreparedStatement {
+        val statement = prepareStatement(prefix + query.sql)
+        query.bindTo(object : SupportSQLiteProgram {
+            override fun bindNull(index: Int) = statement.setObject(index, null)
+            override fun bindLong(index: Int, value: Long) = statement.setLong(index, value)
+            override fun bindDouble(index: Int, value: Double) = statement.setDouble(index, value)
+            override fun bindString(index: Int, value: String) = statement.setString(index, value)
+            override fun bindBlob(index: Int, value: ByteArray) = statement.setBytes(index, value)
+            override fun clearBindings() = statement.clearParameters()
+            override fun close() {}
+        })
+        return statement
+    }
+
+    /**
+     * Runs a query built for Room and returns the first column of each row.
+     */
+    fun Connection.queryLongs(query: SupportSQLiteQuery): List<Long> =
+        prepare(query).use { statement ->
+            statement.executeQuery().use { rows ->
+                val values = mutableListOf<Long>()
+                while (rows.next()) values.add(rows.getLong(1))
+                values
+            }
+        }
+}
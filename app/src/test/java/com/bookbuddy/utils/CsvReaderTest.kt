@@ -0,0 +1,125 @@
+package com.bookbuddy.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.Reader
+import java.io.StringReader
+
+class CsvReaderTest {
+
+    /**
+     * Hands out at most [chunk] chars per read, like a slow stream, so records and fields
+     * straddle buffer refills.
+     */
+    private class ChunkedReader(text: String, private val chunk: Int) : Reader() {
+        private val source = StringReader(text)
+
+        override fun read(cbuf: CharArray, off: Int, len: Int): Int = source.read(cbuf, off, minOf(len, chunk))
+
+        override fun close() = source.close()
+    }
+
+    private fun parse(text: String, bufferSize: Int = CsvReader.DEFAULT_BUFFER_SIZE, chunk: Int = Int.MAX_VALUE): List<List<String>> {
+        val records = mutableListOf<List<String>>()
+        CsvReader(ChunkedReader(text, chunk), bufferSize).use { reader ->
+            val fields = mutableListOf<String>()
+            while (reader.readRecord(fields)) records.add(fields.toList())
+        }
+        return records
+    }
+
+    @Test
+    fun plainRecords() {
+        assertEquals(
+            listOf(listOf("name", "author"), listOf("Dune", "Frank Herbert")),
+            parse("name,author\nDune,Frank Herbert\n")
+        )
+    }
+
+    @Test
+    fun lastRecordWithoutLineEnd() {
+        assertEquals(listOf(listOf("a", "b"), listOf("c", "")), parse("a,b\nc,"))
+    }
+
+    @Test
+    fun quotedFieldWithEmbeddedCommaAndNewlines() {
+        assertEquals(
+            listOf(listOf("Title", "line one\nline two, still\r\nline three"), listOf("next", "row")),
+            parse("Title,\"line one\nline two, still\r\nline three\"\nnext,row\n")
+        )
+    }
+
+    @Test
+    fun doubledQuotesAreEscapes() {
+        assertEquals(
+            listOf(listOf("The \"Best\" Book", "\"", "")),
+            parse("\"The \"\"Best\"\" Book\",\"\"\"\",\"\"\n")
+        )
+    }
+
+    @Test
+    fun byteOrderMarkIsSkipped() {
+        assertEquals(listOf(listOf("name", "author")), parse("\uFEFFname,author\n"))
+        // A BOM alone in the first read
+        assertEquals(listOf(listOf("name", "author")), parse("\uFEFFname,author\n", chunk = 1))
+    }
+
+    @Test
+    fun crlfLineEnds() {
+        assertEquals(
+            listOf(listOf("a", "b"), listOf("c", "d")),
+            parse("a,b\r\nc,d\r\n")
+        )
+        // CR and LF in different buffer fills
+        assertEquals(
+            listOf(listOf("a", "b"), listOf("c", "d")),
+            parse("a,b\r\nc,d\r\n", bufferSize = 4, chunk = 4)
+        )
+    }
+
+    @Test
+    fun sameRecordsForEveryBufferBoundary() {
+        val text = "\uFEFFid,name,notes\r\n" +
+            "1,\"Dune\",\"spice, sand\r\nand \"\"worms\"\"\"\r\n" +
+            "2,Emma,\n" +
+            "3,\"\",\"a\"\"\"\r\n"
+        val expected = listOf(
+            listOf("id", "name", "notes"),
+            listOf("1", "Dune", "spice, sand\r\nand \"worms\""),
+            listOf("2", "Emma", ""),
+            listOf("3", "", "a\"")
+        )
+        for (bufferSize in 1..text.length + 1) {
+            for (chunk in listOf(1, 2, 3, 7)) {
+                assertEquals("bufferSize=$bufferSize chunk=$chunk", expected, parse(text, bufferSize, chunk))
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    fun largeInputThroughput() {
+        val rows = 200_000
+        val text = buildString {
+            append("name,author,category,notes\n")
+            for (i in 0 until rows) {
+                append("Book $i,Author ${i % 997},Fiction,\"quoted, with \"\"escapes\"\"\nand a newline\"\n")
+            }
+        }
+
+        var count = 0
+        var last: List<String> = emptyList()
+        CsvReader(StringReader(text)).use { reader ->
+            val fields = mutableListOf<String>()
+            while (reader.readRecord(fields)) {
+                count++
+                last = fields.toList()
+            }
+        }
+
+        assertEquals(rows + 1, count)
+        assertEquals(
+            listOf("Book ${rows - 1}", "Author ${(rows - 1) % 997}", "Fiction", "quoted, with \"escapes\"\nand a newline"),
+            last
+        )
+    }
+}
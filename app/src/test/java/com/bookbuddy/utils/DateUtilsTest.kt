@@ -0,0 +1,159 @@
+package com.bookbuddy.utils
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.ZoneId
+import java.time.ZonedDateTime
+import java.util.Calendar
+import java.util.Date
+import java.util.TimeZone
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class DateUtilsTest {
+
+    private lateinit var savedZone: TimeZone
+
+    @Before
+    fun pinTimeZone() {
+        savedZone = TimeZone.getDefault()
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"))
+    }
+
+    @After
+    fun restoreTimeZone() {
+        TimeZone.setDefault(savedZone)
+    }
+
+    @Test
+    fun csvDateRoundTripsThroughLocalMidnight() {
+        val millis = DateUtils.parseCsvDate("2024-03-10")!!
+        val midnight = Calendar.getInstance().apply {
+            clear()
+            set(2024, Calendar.MARCH, 10)
+        }
+        assertEquals(midnight.timeInMillis, millis)
+        assertEquals("2024-03-10", DateUtils.formatCsvDate(millis))
+        // Late evening stays on the same local day
+        assertEquals("2024-03-10", DateUtils.formatCsvDate(millis + 23 * 60 * 60 * 1000L - 1))
+    }
+
+    @Test
+    fun csvDateIgnoresSurroundingWhitespace() {
+        assertEquals(DateUtils.parseCsvDate("2023-12-31"), DateUtils.parseCsvDate(" 2023-12-31 "))
+    }
+
+    @Test
+    fun blankOrMalformedCsvDateIsNull() {
+        assertNull(DateUtils.parseCsvDate(""))
+        assertNull(DateUtils.parseCsvDate("   "))
+        assertNull(DateUtils.parseCsvDate("31/12/2023"))
+        assertNull(DateUtils.parseCsvDate("2023-02-30"))
+    }
+
+    @Test
+    fun csvDatesAreSafeToShareAcrossThreads() {
+        val days = (0 until 2_000).map { LocalDate.of(2000, 1, 1).plusDays(it * 3L).toString() }
+        val pool = Executors.newFixedThreadPool(8)
+        try {
+            val results = pool.invokeAll(List(8) {
+                Callable { days.map { DateUtils.formatCsvDate(DateUtils.parseCsvDate(it)!!) } }
+            })
+            results.forEach { assertEquals(days, it.get(30, TimeUnit.SECONDS)) }
+        } finally {
+            pool.shutdownNow()
+        }
+    }
+
+    @Test
+    fun epochDayOfMillisInUtc() {
+        val utc = ZoneId.of("UTC")
+        assertEquals(0L, DateUtils.toEpochDay(0L, utc))
+        assertEquals(0L, DateUtils.toEpochDay(24 * 60 * 60 * 1000L - 1, utc))
+        assertEquals(1L, DateUtils.toEpochDay(24 * 60 * 60 * 1000L, utc))
+        // Before 1970 rounds down, not toward zero
+        assertEquals(-1L, DateUtils.toEpochDay(-1L, utc))
+    }
+
+    @Test
+    fun epochDayFollowsTheLocalCalendarDay() {
+        val zones = listOf("America/New_York", "Asia/Kolkata", "Pacific/Auckland", "Pacific/Chatham").map { ZoneId.of(it) }
+        // Around the 2024 DST changes on both hemispheres, at odd offsets
+        val times = listOf(
+            "2024-03-10T00:30", "2024-03-10T03:30", "2024-03-10T23:59",
+            "2024-04-07T02:30", "2024-11-03T01:30", "2024-11-03T23:30", "1969-12-31T23:00"
+        )
+        for (zone in zones) {
+            for (time in times) {
+                val local = ZonedDateTime.of(LocalDateTime.parse(time), zone)
+                val millis = local.toInstant().toEpochMilli()
+                assertEquals("$time $zone", local.toLocalDate().toEpochDay(), DateUtils.toEpochDay(millis, zone))
+            }
+        }
+    }
+
+    @Test
+    fun epochDayDefaultsToTheDeviceZone() {
+        val millis = DateUtils.parseCsvDate("2024-11-03")!!
+        assertEquals(LocalDate.of(2024, 11, 3).toEpochDay(), DateUtils.toEpochDay(millis))
+        assertEquals(LocalDate.of(2024, 11, 3).toEpochDay(), DateUtils.toEpochDay(millis + 24 * 60 * 60 * 1000L))
+    }
+
+    /**
+     * The day count the adapter shows, against the three-Calendar version it replaced.
+     */
+    @Test
+    fun dayArithmeticAllocatesLessThanCalendar() {
+        val start = DateUtils.parseCsvDate("2024-01-15")!! + 5 * 60 * 60 * 1000L
+        val end = DateUtils.parseCsvDate("2024-03-20")!! + 17 * 60 * 60 * 1000L
+        val iterations = 200_000
+
+        var sink = 0L
+        // Warm both paths up first so the JIT settles
+        repeat(iterations) {
+            sink += DateUtils.toEpochDay(end) - DateUtils.toEpochDay(start)
+            sink += calendarDaysBetween(Date(start), Date(end))
+        }
+
+        val epochBytes = allocatedBytes {
+            repeat(iterations) { sink += DateUtils.toEpochDay(end) - DateUtils.toEpochDay(start) }
+        }
+        val calendarBytes = allocatedBytes {
+            repeat(iterations) { sink += calendarDaysBetween(Date(start), Date(end)) }
+        }
+
+        assertEquals(65L, DateUtils.toEpochDay(end) - DateUtils.toEpochDay(start))
+        assertEquals(65L, calendarDaysBetween(Date(start), Date(end)))
+        println("Bytes per call: epoch day ${epochBytes / iterations}, Calendar ${calendarBytes / iterations} ($sink)")
+        assertTrue("epoch day $epochBytes vs Calendar $calendarBytes bytes", epochBytes * 4 < calendarBytes)
+    }
+
+    private fun calendarDaysBetween(start: Date, end: Date): Long {
+        val startCal = Calendar.getInstance().apply { time = start }
+        val endCal = Calendar.getInstance().apply { time = end }
+        for (cal in listOf(startCal, endCal)) {
+            cal.set(Calendar.HOUR_OF_DAY, 0)
+            cal.set(Calendar.MINUTE, 0)
+            cal.set(Calendar.SECOND, 0)
+            cal.set(Calendar.MILLISECOND, 0)
+        }
+        val diff = endCal.timeInMillis - startCal.timeInMillis
+        return Math.round(diff / (24 * 60 * 60 * 1000.0))
+    }
+
+    private fun allocatedBytes(block: () -> Unit): Long {
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val thread = Thread.currentThread().id
+        val before = threads.getThreadAllocatedBytes(thread)
+        block()
+        return threads.getThreadAllocatedBytes(thread) - before
+    }
+}
@@ -0,0 +1,73 @@
+package com.bookbuddy.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class FtsRankTest {
+
+    private val weights = doubleArrayOf(3.0, 1.0)
+
+    /**
+     * A one-phrase, two-column (name, author) "pcnalx" blob over [rows] rows.
+     * [hits] and [rowsWithHits] are per column.
+     */
+    private fun matchInfo(
+        rows: Int,
+        hits: IntArray,
+        rowsWithHits: IntArray,
+        lengths: IntArray = intArrayOf(3, 2),
+        averageLengths: IntArray = intArrayOf(3, 2)
+    ): ByteArray {
+        val values = mutableListOf(1, 2, rows)
+        values += averageLengths.toList()
+        values += lengths.toList()
+        for (column in 0 until 2) {
+            values += listOf(hits[column], hits[column], rowsWithHits[column])
+        }
+        val buffer = ByteBuffer.allocate(values.size * 4).order(ByteOrder.nativeOrder())
+        values.forEach { buffer.putInt(it) }
+        return buffer.array()
+    }
+
+    @Test
+    fun rowWithoutHitsScoresZero() {
+        val score = FtsRank.bm25(matchInfo(rows = 10, hits = intArrayOf(0, 0), rowsWithHits = intArrayOf(2, 2)), weights)
+        assertEquals(0.0, score, 0.0)
+    }
+
+    @Test
+    fun titleHitOutranksAuthorHit() {
+        val title = FtsRank.bm25(matchInfo(rows = 10, hits = intArrayOf(1, 0), rowsWithHits = intArrayOf(2, 2)), weights)
+        val author = FtsRank.bm25(matchInfo(rows = 10, hits = intArrayOf(0, 1), rowsWithHits = intArrayOf(2, 2)), weights)
+        assertTrue(title > author)
+    }
+
+    @Test
+    fun rarerTermScoresHigher() {
+        val rare = FtsRank.bm25(matchInfo(rows = 100, hits = intArrayOf(1, 0), rowsWithHits = intArrayOf(1, 0)), weights)
+        val common = FtsRank.bm25(matchInfo(rows = 100, hits = intArrayOf(1, 0), rowsWithHits = intArrayOf(40, 0)), weights)
+        assertTrue(rare > common)
+    }
+
+    @Test
+    fun shorterTitleScoresHigherForTheSameHit() {
+        val short = FtsRank.bm25(
+            matchInfo(rows = 10, hits = intArrayOf(1, 0), rowsWithHits = intArrayOf(2, 0), lengths = intArrayOf(1, 2)),
+            weights
+        )
+        val long = FtsRank.bm25(
+            matchInfo(rows = 10, hits = intArrayOf(1, 0), rowsWithHits = intArrayOf(2, 0), lengths = intArrayOf(8, 2)),
+            weights
+        )
+        assertTrue(short > long)
+    }
+
+    @Test
+    fun termInMostRowsStillCounts() {
+        val score = FtsRank.bm25(matchInfo(rows = 10, hits = intArrayOf(1, 0), rowsWithHits = intArrayOf(9, 0)), weights)
+        assertTrue(score > 0.0)
+    }
+}